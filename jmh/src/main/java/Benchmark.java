@@ -0,0 +1,328 @@
+import java.awt.GraphicsEnvironment;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Supplier;
+
+/**
+ * Measures the hot paths of the simulation, so that the effect of a change
+ * on speed and on allocation can be compared against a baseline.
+ * Each benchmark is run for every combination of grid size, vehicle density,
+ * number of rocks and behaviour, e.g.
+ *
+ *   java -cp target/benchmarks.jar Benchmark --size 50,200,800 --vehicles 0.01,0.05 --time 2000
+ *
+ * Behaviour strategies can be compared head to head, including ones not
+ * built in, named by class (see Behaviours), e.g.
+ *
+ *   Benchmark --benchmarks step --behaviour simple,optimised,MyStrategy
+ *
+ * The built-in strategies are each planned by a loop of their own, so
+ * measuring one does not slow the others down; strategies of other
+ * classes share a loop, so compare at most two of them in one run.
+ *
+ * The benchmarks are:
+ *   step           one call of Simulator.simulateOneStep
+ *   neighbourhood  one call of Field.survey
+ *   signal         one call of Mothership.emitSignal
+ *   clusters       one call of ClusterGenerator.generateClusters
+ *   view           one call of SimulatorView.showStatus (needs a display)
+ *
+ * All but view, which needs a display, are run unless --benchmarks names
+ * others. Every benchmark is warmed up before it is measured. The results
+ * give the time and the bytes allocated by the measuring thread per call.
+ * This is a quick check without JMH; the same operations are measured more
+ * carefully, under JMH and with its GC profiler, by HotPaths, which calls
+ * operation.
+ *
+ * This class is part of the benchmarks rather than the simulation, but is
+ * in the simulation's package, the default one, so that it can use the
+ * simulation's classes directly.
+ */
+public class Benchmark {
+
+	// The benchmarks, in the order they are run.
+	private static final String[] BENCHMARKS = {"step", "neighbourhood", "signal", "clusters", "view"};
+	// The benchmarks run unless others are asked for: all but the view.
+	private static final String[] DEFAULT_BENCHMARKS = {"step", "neighbourhood", "signal", "clusters"};
+
+	// What the last call measured returned, kept so that the JIT cannot
+	// leave out the work of the call.
+	private static volatile Object sink;
+
+	public static void main(String[] args) {
+		List<String> benchmarks = Arrays.asList(DEFAULT_BENCHMARKS);
+		List<String> sizes = Arrays.asList(Integer.toString(ModelConstants.DEFAULT_WIDTH));
+		List<String> densities = Arrays.asList(Double.toString(ModelConstants.VEHICLE_CREATION_PROBABILITY));
+		List<String> rockCounts = Arrays.asList(Integer.toString(ModelConstants.ROCK_LOCATIONS));
+		List<String> behaviours = Arrays.asList(Behaviours.canonicalName(ModelConstants.BEHAVIOUR.name()));
+		SimulationConfig.Builder builder = new SimulationConfig.Builder();
+		long warmupMillis = 1000;
+		long timeMillis = 1000;
+		try {
+			for (int i = 0; i < args.length; i += 2) {
+				String option = args[i];
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for " + option);
+				}
+				String value = args[i + 1];
+				if (option.equals("--benchmarks")) {
+					benchmarks = Arrays.asList(value.split(","));
+					for (String b : benchmarks) {
+						if (!Arrays.asList(BENCHMARKS).contains(b)) {
+							throw new IllegalArgumentException("Unknown benchmark " + b);
+						}
+					}
+				} else if (option.equals("--size")) {
+					sizes = Arrays.asList(value.split(","));
+				} else if (option.equals("--vehicles")) {
+					densities = Arrays.asList(value.split(","));
+				} else if (option.equals("--rocks")) {
+					rockCounts = Arrays.asList(value.split(","));
+				} else if (option.equals("--behaviour")) {
+					behaviours = Arrays.asList(value.split(","));
+					for (String b : behaviours) {
+						Behaviours.canonicalName(b);
+					}
+				} else if (option.equals("--warmup")) {
+					warmupMillis = Long.parseLong(value);
+				} else if (option.equals("--time")) {
+					timeMillis = Long.parseLong(value);
+				} else if (option.startsWith("--")) {
+					builder.set(option.substring(2), value);
+				} else {
+					throw new IllegalArgumentException("Unknown option " + option);
+				}
+			}
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: Benchmark [--benchmarks list] [--size list] [--vehicles list] [--rocks list]"
+					+ " [--behaviour list] [--warmup ms] [--time ms] [--seed n] [--clusters n] [--obstacles p]");
+			System.exit(1);
+		}
+
+		System.out.printf("%-14s %6s %9s %6s %-14s %14s %12s%n",
+				"benchmark", "size", "vehicles", "rocks", "behaviour", "ns/op", "bytes/op");
+		for (String benchmark : benchmarks) {
+			for (String size : sizes) {
+				for (String density : densities) {
+					for (String rocks : rockCounts) {
+						for (String behaviour : behaviours) {
+							SimulationConfig config = builder.width(Integer.parseInt(size))
+									.depth(Integer.parseInt(size))
+									.vehicleProbability(Double.parseDouble(density))
+									.rockLocations(Integer.parseInt(rocks))
+									.behaviour(behaviour)
+									.build();
+							double[] result = run(benchmark, config, warmupMillis, timeMillis);
+							if (result == null) {
+								System.out.printf("%-14s %6s %9s %6s %-14s %14s %12s%n",
+										benchmark, size, density, rocks, config.getBehaviour(), "skipped", "");
+							} else {
+								System.out.printf("%-14s %6s %9s %6s %-14s %14.1f %12s%n",
+										benchmark, size, density, rocks, config.getBehaviour(), result[0],
+										result[1] < 0 ? "n/a" : String.format("%.1f", result[1]));
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Set up and measure one benchmark.
+	 * @param benchmark The name of the benchmark.
+	 * @param config The parameters of the simulation to measure it on.
+	 * @param warmupMillis How long to run it for before measuring.
+	 * @param timeMillis How long to measure it for.
+	 * @return The nanoseconds and the bytes allocated per call, or null if
+	 *         the benchmark cannot run here.
+	 */
+	private static double[] run(String benchmark, SimulationConfig config, long warmupMillis, long timeMillis) {
+		Supplier<Object> operation = operation(benchmark, config);
+		if (operation == null) {
+			return null;
+		}
+		try {
+			return measure(operation, warmupMillis, timeMillis);
+		} finally {
+			if (operation instanceof ViewOperation) {
+				((ViewOperation) operation).close();
+			}
+		}
+	}
+
+	/**
+	 * Set up one benchmark for the JMH benchmarks, which cannot name the
+	 * classes of the simulation, on a simulation with the defaults in
+	 * ModelConstants but for the values given.
+	 * @param benchmark The name of the benchmark.
+	 * @param size The width and depth of the field.
+	 * @param vehicles The probability of a vehicle in each location.
+	 * @param rocks The number of rock locations.
+	 * @param behaviour The name of the vehicles' behaviour.
+	 * @return The operation, which returns what the call measured
+	 *         returned, or null if the benchmark cannot run here. An
+	 *         operation that is also AutoCloseable is closed when done.
+	 */
+	public static Supplier<Object> operation(String benchmark, int size, double vehicles, int rocks, String behaviour) {
+		return operation(benchmark, new SimulationConfig.Builder().width(size).depth(size)
+				.vehicleProbability(vehicles).rockLocations(rocks).behaviour(behaviour).build());
+	}
+
+	/**
+	 * Set up one benchmark: one call of the code it measures.
+	 * @param benchmark The name of the benchmark.
+	 * @param config The parameters of the simulation to measure it on.
+	 * @return The operation, or null if the benchmark cannot run here.
+	 * @throws IllegalArgumentException If there is no such benchmark.
+	 */
+	static Supplier<Object> operation(String benchmark, SimulationConfig config) {
+		if (!Arrays.asList(BENCHMARKS).contains(benchmark)) {
+			throw new IllegalArgumentException("Unknown benchmark " + benchmark);
+		}
+		final Simulator s = new Simulator(config, null);
+		final Field field = s.getField();
+		if (benchmark.equals("step")) {
+			// The simulation carries on from step to step as in a real run.
+			// Once it has finished, its vehicles have nothing left to do,
+			// so it starts again with a new simulation; the rare call that
+			// makes one is measured with the rest.
+			final SimulationConfig stepConfig = config;
+			return new Supplier<Object>() {
+				private Simulator current = s;
+
+				@Override
+				public Object get() {
+					if (current.isComplete() || !current.isViable()) {
+						current = new Simulator(stepConfig, null);
+					}
+					current.simulateOneStep();
+					return current.getField();
+				}
+			};
+		} else if (benchmark.equals("neighbourhood")) {
+			// Survey every cell in turn, so that each call sees a different
+			// neighbourhood.
+			final Neighbourhood cursor = new Neighbourhood();
+			final SplittableRandom random = new SplittableRandom(config.getSeed());
+			return new Supplier<Object>() {
+				private int row, col;
+
+				@Override
+				public Object get() {
+					Neighbourhood n = field.survey(row, col, cursor, random);
+					if (++col == field.getWidth()) {
+						col = 0;
+						if (++row == field.getDepth()) {
+							row = 0;
+						}
+					}
+					return n;
+				}
+			};
+		} else if (benchmark.equals("signal")) {
+			final Mothership mothership = s.getMothership();
+			return new Supplier<Object>() {
+				@Override
+				public Object get() {
+					mothership.emitSignal(field);
+					return field;
+				}
+			};
+		} else if (benchmark.equals("clusters")) {
+			final SimulationConfig clusterConfig = config;
+			final SplittableRandom random = new SplittableRandom(config.getSeed());
+			return new Supplier<Object>() {
+				@Override
+				public Object get() {
+					return ClusterGenerator.generateClusters(clusterConfig, random);
+				}
+			};
+		} else {
+			if (GraphicsEnvironment.isHeadless()) {
+				return null;
+			}
+			return new ViewOperation(s);
+		}
+	}
+
+	/**
+	 * Shows the current step of a simulation in a view, which is
+	 * disposed of when the operation is closed.
+	 */
+	private static final class ViewOperation implements Supplier<Object>, AutoCloseable {
+		private final Simulator s;
+		private final SimulatorView view;
+
+		ViewOperation(Simulator s) {
+			this.s = s;
+			view = new SimulatorView(s.getField().getDepth(), s.getField().getWidth(), s);
+		}
+
+		@Override
+		public Object get() {
+			view.showStatus(s.getStep(), s.getField());
+			return view;
+		}
+
+		@Override
+		public void close() {
+			view.dispose();
+		}
+	}
+
+	/**
+	 * Warm up an operation, then run it repeatedly for a given time.
+	 * @param operation The operation to measure.
+	 * @param warmupMillis How long to run it for before measuring.
+	 * @param timeMillis How long to measure it for.
+	 * @return The nanoseconds and the bytes allocated per call; the bytes
+	 *         are negative if this JVM cannot count them.
+	 */
+	private static double[] measure(Supplier<Object> operation, long warmupMillis, long timeMillis) {
+		repeat(operation, warmupMillis);
+
+		long bytesBefore = allocatedBytes();
+		long start = System.nanoTime();
+		long operations = repeat(operation, timeMillis);
+		long nanos = System.nanoTime() - start;
+		long bytes = allocatedBytes() - bytesBefore;
+
+		return new double[] {(double) nanos / operations, bytesBefore < 0 ? -1 : (double) bytes / operations};
+	}
+
+	/**
+	 * Run an operation until a given time has passed, and at least once.
+	 * @param operation The operation to run.
+	 * @param millis How long to run it for.
+	 * @return The number of times it was run.
+	 */
+	private static long repeat(Supplier<Object> operation, long millis) {
+		long end = System.nanoTime() + millis * 1000000;
+		long operations = 0;
+		do {
+			sink = operation.get();
+			operations++;
+		} while (System.nanoTime() < end);
+		return operations;
+	}
+
+	/**
+	 * @return The number of bytes allocated so far by the current thread,
+	 *         or -1 if this JVM cannot count them.
+	 */
+	private static long allocatedBytes() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+			if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+				return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+}
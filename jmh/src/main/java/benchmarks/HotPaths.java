@@ -0,0 +1,132 @@
+package benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The hot paths of the simulation, measured for every combination of grid
+ * size, vehicle density and number of rocks. Each benchmark makes one call
+ * of the code it measures, set up by Benchmark.operation, and hands what
+ * the call returned to a Blackhole so that the JIT cannot leave the work
+ * out. The operation is made afresh for every iteration, so that each
+ * iteration of step starts from the first step of a new simulation.
+ *
+ * The simulation's classes are in the default package, which code in a
+ * package cannot name, so the operation is made by reflection; the call
+ * measured is a plain interface call, and as each benchmark runs in a JVM
+ * of its own it sees only one kind of operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotPaths
+{
+    @Param({"50", "200", "800"})
+    public int size;
+
+    @Param({"0.01", "0.05"})
+    public double vehicles;
+
+    @Param({"300"})
+    public int rocks;
+
+    @Param({"optimised"})
+    public String behaviour;
+
+    private Supplier<Object> operation;
+
+    /**
+     * Make the operation of the benchmark about to run, named after its
+     * method.
+     */
+    @Setup(Level.Iteration)
+    @SuppressWarnings("unchecked")
+    public void setUp(BenchmarkParams params) throws ReflectiveOperationException
+    {
+        String name = params.getBenchmark();
+        name = name.substring(name.lastIndexOf('.') + 1);
+        Method factory = Class.forName("Benchmark").getMethod("operation", String.class,
+                int.class, double.class, int.class, String.class);
+        operation = (Supplier<Object>) factory.invoke(null, name, size, vehicles, rocks, behaviour);
+        if(operation == null) {
+            throw new IllegalStateException("The " + name + " benchmark cannot run here");
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws Exception
+    {
+        if(operation instanceof AutoCloseable) {
+            ((AutoCloseable) operation).close();
+        }
+    }
+
+    /**
+     * One call of Simulator.simulateOneStep, carrying on from step to step
+     * and starting a new simulation once one has finished.
+     */
+    @Benchmark
+    public void step(Blackhole blackhole)
+    {
+        blackhole.consume(operation.get());
+    }
+
+    /**
+     * One call of Field.survey, the neighbourhood query, on each cell in
+     * turn. The survey fills a cursor the caller owns, so its
+     * gc.alloc.rate.norm is 0 B/op.
+     */
+    @Benchmark
+    public void neighbourhood(Blackhole blackhole)
+    {
+        blackhole.consume(operation.get());
+    }
+
+    /**
+     * One call of Mothership.emitSignal.
+     */
+    @Benchmark
+    public void signal(Blackhole blackhole)
+    {
+        blackhole.consume(operation.get());
+    }
+
+    /**
+     * One call of ClusterGenerator.generateClusters.
+     */
+    @Benchmark
+    public void clusters(Blackhole blackhole)
+    {
+        blackhole.consume(operation.get());
+    }
+
+    /**
+     * One call of SimulatorView.showStatus. It needs a display, so it is
+     * only run when asked for by name (see RunBenchmarks).
+     */
+    @Benchmark
+    public void view(Blackhole blackhole)
+    {
+        blackhole.consume(operation.get());
+    }
+}
@@ -0,0 +1,44 @@
+package benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks as JMH's own main would, with the same options,
+ * but always with the GC profiler, so that each result comes with the
+ * bytes allocated per operation, e.g.
+ *
+ *   java -jar benchmarks.jar step -p size=200 -p vehicles=0.05
+ *
+ * The view benchmark needs a display, so it is left out unless a pattern
+ * given names it, e.g. "java -jar benchmarks.jar view".
+ */
+public class RunBenchmarks
+{
+    public static void main(String[] args) throws RunnerException
+    {
+        CommandLineOptions options;
+        try {
+            options = new CommandLineOptions(args);
+        }
+        catch (CommandLineOptionException e) {
+            System.err.println("Error parsing the options: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        OptionsBuilder builder = new OptionsBuilder();
+        builder.parent(options).addProfiler(GCProfiler.class);
+        boolean viewAsked = false;
+        for(String include : options.getIncludes()) {
+            viewAsked |= include.contains("view");
+        }
+        if(!viewAsked) {
+            builder.exclude("\\.view$");
+        }
+        new Runner(builder.build()).run();
+    }
+}
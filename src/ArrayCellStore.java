@@ -0,0 +1,79 @@
+/**
+ * Stores every cell of a field in flat arrays, one per layer. This is the
+ * fastest store, and needs memory in proportion to the area of the field:
+ * six bytes a cell, for its kind, its crumbs (at most 127) and the stamp
+ * of its crumbs. The entities, which are few, are kept in a map from
+ * packed index to entity.
+ */
+class ArrayCellStore implements CellStore
+{
+    private byte[] types;
+    private IntMap<Entity> entities;
+    private byte[] crumbs;
+    private int[] stamps;
+    
+    /**
+     * @param size The number of cells.
+     */
+    ArrayCellStore(int size)
+    {
+        types = new byte[size];
+        entities = new IntMap<Entity>();
+        crumbs = new byte[size];
+        stamps = new int[size];
+    }
+    
+    @Override
+    public byte getType(int index)
+    {
+        return types[index];
+    }
+    
+    @Override
+    public Entity getEntity(int index)
+    {
+        return entities.get(index);
+    }
+    
+    @Override
+    public void setCell(int index, byte type, Entity entity)
+    {
+        types[index] = type;
+        if(entity == null) {
+            entities.remove(index);
+        }
+        else {
+            entities.put(index, entity);
+        }
+    }
+    
+    @Override
+    public int getCrumbs(int index)
+    {
+        return crumbs[index];
+    }
+    
+    @Override
+    public int getCrumbStamp(int index)
+    {
+        return stamps[index];
+    }
+    
+    @Override
+    public void setCrumbs(int index, int quantity, int stamp)
+    {
+        crumbs[index] = (byte) quantity;
+        stamps[index] = stamp;
+    }
+    
+    @Override
+    public CellStore copy()
+    {
+        ArrayCellStore copy = new ArrayCellStore(0);
+        copy.types = types.clone();
+        copy.entities = new IntMap<Entity>(entities);
+        copy.crumbs = crumbs.clone();
+        copy.stamps = stamps.clone();
+        return copy;
+    }
+}
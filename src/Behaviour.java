@@ -0,0 +1,27 @@
+/**
+ * The behaviours a Vehicle can follow. Each is a subsumption hierarchy
+ * described in the class-level comments of Vehicle, and planned by a
+ * strategy of its own.
+ */
+enum Behaviour
+{
+    SIMPLE(new SimpleBehaviour()),
+    COLLABORATIVE(new CollaborativeBehaviour()),
+    OPTIMISED(new OptimisedBehaviour());
+
+    private final BehaviourStrategy strategy;
+
+    Behaviour(BehaviourStrategy strategy)
+    {
+        this.strategy = strategy;
+    }
+
+    /**
+     * @return The strategy that plans this behaviour, shared by all
+     *         simulations.
+     */
+    public BehaviourStrategy getStrategy()
+    {
+        return strategy;
+    }
+}
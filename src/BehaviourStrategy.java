@@ -0,0 +1,25 @@
+/**
+ * How the vehicles of a simulation decide what to do in each step. A
+ * strategy reads a vehicle's surveyed neighbourhood and records a plan in
+ * the fleet with Fleet.setPlan; the fleet carries the plans out later, one
+ * vehicle at a time. Plans are made in parallel against a field that is
+ * only read, so a strategy must keep no state of its own and draw any
+ * random numbers from the planner it is given, which makes each vehicle's
+ * numbers depend only on the seed, the vehicle and the step.
+ *
+ * The built-in strategies are those of Behaviour. Others are made known
+ * by name with Behaviours.register, and chosen like the built-in ones,
+ * e.g. with --behaviour on the command line.
+ */
+interface BehaviourStrategy
+{
+    /**
+     * Decide what a vehicle does this step.
+     * @param fleet All vehicles in the simulation.
+     * @param v The number of the vehicle.
+     * @param f Field the vehicle is operating in, which must not be changed.
+     * @param n The vehicle's surveyed neighbourhood.
+     * @param planner The planner of the calling thread, for random numbers.
+     */
+    void plan(Fleet fleet, int v, Field f, Neighbourhood n, Fleet.Planner planner);
+}
@@ -0,0 +1,124 @@
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The behaviour strategies known by name, which a configuration chooses
+ * between. The built-in behaviours are known by the lower-case names of
+ * Behaviour. Other strategies are registered, either by code, before
+ * the simulations that use them are configured, or by naming a class
+ * that implements BehaviourStrategy and has a public constructor without
+ * parameters, e.g. --behaviour MyStrategy, which registers it under the
+ * class name when it is first asked for. A checkpoint records the name,
+ * so a simulation using such a class can be restored in another run.
+ */
+final class Behaviours
+{
+    // The strategies by name, in the order they were registered.
+    private static final Map<String, BehaviourStrategy> strategies = new LinkedHashMap<String, BehaviourStrategy>();
+
+    static {
+        for(Behaviour b : Behaviour.values()) {
+            strategies.put(b.name().toLowerCase(Locale.ROOT), b.getStrategy());
+        }
+    }
+
+    private Behaviours()
+    {
+    }
+
+    /**
+     * Make a strategy known by name.
+     * @param name The name; names are looked up without regard to case.
+     * @param strategy The strategy.
+     * @throws IllegalArgumentException If the name is already taken.
+     */
+    public static synchronized void register(String name, BehaviourStrategy strategy)
+    {
+        if(strategy == null) {
+            throw new IllegalArgumentException("No strategy given for behaviour " + name);
+        }
+        if(find(name) != null) {
+            throw new IllegalArgumentException("There is already a behaviour called " + name);
+        }
+        strategies.put(name, strategy);
+    }
+
+    /**
+     * @param name The name of a registered strategy, or of a class
+     *        implementing BehaviourStrategy.
+     * @return The name under which the strategy is registered.
+     * @throws IllegalArgumentException If there is no such strategy.
+     */
+    public static synchronized String canonicalName(String name)
+    {
+        String key = find(name);
+        if(key == null) {
+            key = name;
+            strategies.put(key, load(name));
+        }
+        return key;
+    }
+
+    /**
+     * @param name The name of a strategy.
+     * @return The strategy.
+     * @throws IllegalArgumentException If there is no such strategy.
+     */
+    public static synchronized BehaviourStrategy get(String name)
+    {
+        return strategies.get(canonicalName(name));
+    }
+
+    /**
+     * @return The names of all registered strategies, built-in ones first.
+     */
+    public static synchronized List<String> names()
+    {
+        return new ArrayList<String>(strategies.keySet());
+    }
+
+    /**
+     * @return The name under which a strategy is registered, or null.
+     */
+    private static String find(String name)
+    {
+        if(strategies.containsKey(name)) {
+            return name;
+        }
+        for(String key : strategies.keySet()) {
+            if(key.equalsIgnoreCase(name)) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Make a strategy of a class given by name.
+     */
+    private static BehaviourStrategy load(String className)
+    {
+        Class<?> c;
+        try {
+            // Not initialized until it is known to be a strategy, so that
+            // naming any other class runs none of its code.
+            c = Class.forName(className, false, Behaviours.class.getClassLoader());
+        }
+        catch (ClassNotFoundException e) {
+            throw new IllegalArgumentException("Unknown behaviour " + className + "; the behaviours are "
+                                               + strategies.keySet());
+        }
+        if(!BehaviourStrategy.class.isAssignableFrom(c)) {
+            throw new IllegalArgumentException(className + " is not a BehaviourStrategy");
+        }
+        try {
+            return (BehaviourStrategy) c.getConstructor().newInstance();
+        }
+        catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot make a " + className + ": " + e, e);
+        }
+    }
+}
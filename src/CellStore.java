@@ -0,0 +1,54 @@
+/**
+ * The storage behind a Field: the kind, the entity and the crumbs of
+ * every cell, addressed by packed index (row * width + col). A store
+ * starts with every cell empty and holding no crumbs. The field gives
+ * an entity only for the cells of vehicles and the mothership, which
+ * are few; rocks and obstacles are stored by kind alone.
+ */
+interface CellStore
+{
+    /**
+     * @param index The packed index of a cell.
+     * @return The kind of the cell, e.g. Field.EMPTY or Field.VEHICLE.
+     */
+    byte getType(int index);
+    
+    /**
+     * @param index The packed index of a cell.
+     * @return The entity in the cell, or null if there is none.
+     */
+    Entity getEntity(int index);
+    
+    /**
+     * Store an entity, or nothing, in a cell.
+     * @param index The packed index of the cell.
+     * @param type The kind of the cell.
+     * @param entity The entity, or null to empty the cell.
+     */
+    void setCell(int index, byte type, Entity entity);
+    
+    /**
+     * @param index The packed index of a cell.
+     * @return The number of crumbs the cell held when last written.
+     */
+    int getCrumbs(int index);
+    
+    /**
+     * @param index The packed index of a cell.
+     * @return The evaporation clock when the cell's crumbs were last written.
+     */
+    int getCrumbStamp(int index);
+    
+    /**
+     * @param index The packed index of a cell.
+     * @param quantity The number of crumbs in the cell.
+     * @param stamp The evaporation clock at the time.
+     */
+    void setCrumbs(int index, int quantity, int stamp);
+    
+    /**
+     * @return A store holding the same cells, which can be changed
+     *         independently of this one.
+     */
+    CellStore copy();
+}
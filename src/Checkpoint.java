@@ -0,0 +1,431 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * A snapshot of the whole state of a simulation between two steps, from
+ * which the simulation can carry on exactly as if it had never stopped.
+ *
+ * Every random choice is drawn from a stream derived from the seed, the
+ * step and the vehicle, so the state of the random numbers is just the
+ * seed and the step, and restoring needs no steps to be replayed.
+ *
+ * A snapshot keeps its own copy of the field, so it can be written to a
+ * file on another thread while the simulation runs on. The file is
+ * binary, big-endian and versioned:
+ *
+ *   int magic, int version, the configuration,
+ *   int step, int completion step,
+ *   int mothership cell, int rocks returned,
+ *   int n, n x (int cell, byte kind)        rocks and obstacles
+ *   int n, n x (int cell, byte carrying)    vehicles, in order
+ *   int n, n x (int cell, int crumbs)       cells holding crumbs
+ */
+final class Checkpoint
+{
+    // "MARS", the first four bytes of every snapshot file.
+    private static final int MAGIC = 0x4D415253;
+    // The version of the format written.
+    private static final int VERSION = 1;
+    // The size of the buffer a snapshot is written through.
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final SimulationConfig config;
+    private final int step;
+    private final int completionStep;
+    private final int mothershipCell;
+    private final int rocksReturned;
+    // The copy of the field, read for rocks, obstacles and crumbs.
+    private final Field field;
+    // The cell of each vehicle and whether it carries a sample, in order.
+    private final int[] vehicleCells;
+    private final boolean[] carrying;
+    // The cells read from a file, when the snapshot was not taken here:
+    // rocks and obstacles with their kinds, then cells with crumbs.
+    private final int[] cells;
+    private final byte[] kinds;
+    private final int[] crumbCells;
+    private final int[] crumbs;
+
+    /**
+     * Take a snapshot of a simulation between two steps.
+     * @param config The parameters of the simulation.
+     * @param step The number of steps taken.
+     * @param completionStep The step at which every sample was returned, or -1.
+     * @param mothershipCell The packed index of the mothership's cell.
+     * @param rocksReturned The number of samples returned to the mothership.
+     * @param field A copy of the field that nothing else will change.
+     * @param vehicleCells The cell of each vehicle, in order.
+     * @param carrying Whether each vehicle carries a sample.
+     */
+    Checkpoint(SimulationConfig config, int step, int completionStep, int mothershipCell,
+               int rocksReturned, Field field, int[] vehicleCells, boolean[] carrying)
+    {
+        this.config = config;
+        this.step = step;
+        this.completionStep = completionStep;
+        this.mothershipCell = mothershipCell;
+        this.rocksReturned = rocksReturned;
+        this.field = field;
+        this.vehicleCells = vehicleCells;
+        this.carrying = carrying;
+        this.cells = null;
+        this.kinds = null;
+        this.crumbCells = null;
+        this.crumbs = null;
+    }
+
+    /**
+     * Make a snapshot read from a file.
+     */
+    private Checkpoint(SimulationConfig config, int step, int completionStep, int mothershipCell,
+                       int rocksReturned, int[] cells, byte[] kinds, int[] vehicleCells,
+                       boolean[] carrying, int[] crumbCells, int[] crumbs)
+    {
+        this.config = config;
+        this.step = step;
+        this.completionStep = completionStep;
+        this.mothershipCell = mothershipCell;
+        this.rocksReturned = rocksReturned;
+        this.field = null;
+        this.cells = cells;
+        this.kinds = kinds;
+        this.vehicleCells = vehicleCells;
+        this.carrying = carrying;
+        this.crumbCells = crumbCells;
+        this.crumbs = crumbs;
+    }
+
+    public SimulationConfig getConfig() { return config; }
+
+    public int getStep() { return step; }
+
+    public int getCompletionStep() { return completionStep; }
+
+    public int getMothershipCell() { return mothershipCell; }
+
+    public int getRocksReturned() { return rocksReturned; }
+
+    public int getVehicleCount() { return vehicleCells.length; }
+
+    public int getVehicleCell(int vehicle) { return vehicleCells[vehicle]; }
+
+    public boolean isCarrying(int vehicle) { return carrying[vehicle]; }
+
+    /**
+     * Restore the rocks, the obstacles and the crumbs into a field. The
+     * vehicles and the mothership are left to the caller.
+     * @param target An empty field of the same size.
+     */
+    void restoreCells(Field target)
+    {
+        int width = config.getWidth();
+        if(field != null) {
+            for(int index = 0; index < config.getDepth() * width; index++) {
+                restoreCell(target, index, field.getCellType(index), field.getCrumbQuantity(index));
+            }
+        }
+        else {
+            for(int i = 0; i < cells.length; i++) {
+                restoreCell(target, cells[i], kinds[i], 0);
+            }
+            for(int i = 0; i < crumbCells.length; i++) {
+                target.setCrumbQuantity(crumbCells[i], crumbs[i]);
+            }
+        }
+    }
+
+    /**
+     * Restore one cell into a field.
+     */
+    private void restoreCell(Field target, int index, byte kind, int quantity)
+    {
+        Location location = new Location(index / config.getWidth(), index % config.getWidth());
+        if(kind == Field.ROCK) {
+            target.place(new Rock(location), index);
+        }
+        else if(kind == Field.OBSTACLE) {
+            target.place(new Obstacle(location), index);
+        }
+        if(quantity > 0) {
+            target.setCrumbQuantity(index, quantity);
+        }
+    }
+
+    /**
+     * Write the snapshot to a file on another thread. The simulation
+     * can carry on meanwhile, as the snapshot holds its own copy.
+     * @param file The file to write; it is replaced only once the whole
+     *        snapshot has been written.
+     * @param executor The executor to write on.
+     * @return The pending write, which fails with an IOException if the
+     *         file cannot be written.
+     */
+    public Future<Void> writeInBackground(final Path file, ExecutorService executor)
+    {
+        return executor.submit(new Callable<Void>() {
+            @Override
+            public Void call() throws IOException {
+                write(file);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Write the snapshot to a file. It is written to a temporary file
+     * first, so a crash while writing leaves any earlier snapshot intact.
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path file) throws IOException
+    {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            writeConfig(out);
+            out.putInt(step);
+            out.putInt(completionStep);
+            out.putInt(mothershipCell);
+            out.putInt(rocksReturned);
+
+            if(field == null) {
+                out.putInt(cells.length);
+                for(int i = 0; i < cells.length; i++) {
+                    out.putInt(cells[i]);
+                    out.put(kinds[i]);
+                }
+            }
+            else {
+                writeCells(out);
+            }
+
+            out.putInt(vehicleCells.length);
+            for(int i = 0; i < vehicleCells.length; i++) {
+                out.putInt(vehicleCells[i]);
+                out.put((byte) (carrying[i] ? 1 : 0));
+            }
+
+            if(field == null) {
+                out.putInt(crumbCells.length);
+                for(int i = 0; i < crumbCells.length; i++) {
+                    out.putInt(crumbCells[i]);
+                    out.putInt(crumbs[i]);
+                }
+            }
+            else {
+                writeCrumbs(out);
+            }
+            out.flush();
+            channel.force(false);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Write the rocks and the obstacles of the copy of the field.
+     */
+    private void writeCells(Output out) throws IOException
+    {
+        int size = config.getDepth() * config.getWidth();
+        int count = 0;
+        for(int index = 0; index < size; index++) {
+            byte kind = field.getCellType(index);
+            count += (kind == Field.ROCK || kind == Field.OBSTACLE) ? 1 : 0;
+        }
+        out.putInt(count);
+        for(int index = 0; index < size; index++) {
+            byte kind = field.getCellType(index);
+            if(kind == Field.ROCK || kind == Field.OBSTACLE) {
+                out.putInt(index);
+                out.put(kind);
+            }
+        }
+    }
+
+    /**
+     * Write the crumbs of the copy of the field.
+     */
+    private void writeCrumbs(Output out) throws IOException
+    {
+        int size = config.getDepth() * config.getWidth();
+        int count = 0;
+        for(int index = 0; index < size; index++) {
+            count += field.getCrumbQuantity(index) > 0 ? 1 : 0;
+        }
+        out.putInt(count);
+        for(int index = 0; index < size; index++) {
+            int quantity = field.getCrumbQuantity(index);
+            if(quantity > 0) {
+                out.putInt(index);
+                out.putInt(quantity);
+            }
+        }
+    }
+
+    /**
+     * Read a snapshot from a file.
+     * @param file The file to read.
+     * @return The snapshot.
+     * @throws IOException If the file cannot be read, or is not a snapshot
+     *         of a version this code can read.
+     */
+    public static Checkpoint read(Path file) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if(in.remaining() < 8 || in.getInt() != MAGIC) {
+                throw new IOException(file + " is not a simulation snapshot");
+            }
+            int version = in.getInt();
+            if(version != VERSION) {
+                throw new IOException(file + " is a snapshot of version " + version
+                                      + ", which cannot be read");
+            }
+            SimulationConfig config = readConfig(in);
+            int step = in.getInt();
+            int completionStep = in.getInt();
+            int mothershipCell = in.getInt();
+            int rocksReturned = in.getInt();
+
+            int[] cells = new int[in.getInt()];
+            byte[] kinds = new byte[cells.length];
+            for(int i = 0; i < cells.length; i++) {
+                cells[i] = in.getInt();
+                kinds[i] = in.get();
+            }
+            int[] vehicleCells = new int[in.getInt()];
+            boolean[] carrying = new boolean[vehicleCells.length];
+            for(int i = 0; i < vehicleCells.length; i++) {
+                vehicleCells[i] = in.getInt();
+                carrying[i] = in.get() != 0;
+            }
+            int[] crumbCells = new int[in.getInt()];
+            int[] crumbs = new int[crumbCells.length];
+            for(int i = 0; i < crumbCells.length; i++) {
+                crumbCells[i] = in.getInt();
+                crumbs[i] = in.getInt();
+            }
+            return new Checkpoint(config, step, completionStep, mothershipCell, rocksReturned,
+                                  cells, kinds, vehicleCells, carrying, crumbCells, crumbs);
+        }
+        catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException(file + " is not a complete simulation snapshot", e);
+        }
+    }
+
+    /**
+     * Write the parameters of the simulation.
+     */
+    private void writeConfig(Output out) throws IOException
+    {
+        out.putInt(config.getSeed());
+        out.putInt(config.getLength());
+        out.putInt(config.getWidth());
+        out.putInt(config.getDepth());
+        out.putInt(config.getRockClusters());
+        out.putDouble(config.getRockClusterStd());
+        out.putInt(config.getRockLocations());
+        out.putDouble(config.getObstacleProbability());
+        out.putDouble(config.getVehicleProbability());
+        out.putString(config.getBehaviour());
+        out.putString(config.getSignal().name());
+        out.putString(config.getStorage().name());
+        out.putString(config.getStorageFile() == null ? "" : config.getStorageFile());
+        out.putInt(config.getEvaporationPeriod());
+        out.put((byte) (config.isShowCrumbs() ? 1 : 0));
+    }
+
+    /**
+     * Read the parameters written by writeConfig.
+     */
+    private static SimulationConfig readConfig(ByteBuffer in)
+    {
+        SimulationConfig.Builder b = new SimulationConfig.Builder();
+        b.seed(in.getInt()).length(in.getInt()).width(in.getInt()).depth(in.getInt())
+         .rockClusters(in.getInt()).rockClusterStd(in.getDouble()).rockLocations(in.getInt())
+         .obstacleProbability(in.getDouble()).vehicleProbability(in.getDouble())
+         .behaviour(getString(in))
+         .signal(SignalType.valueOf(getString(in)))
+         .storage(StorageType.valueOf(getString(in)));
+        String storageFile = getString(in);
+        b.storageFile(storageFile.isEmpty() ? null : storageFile);
+        b.evaporationPeriod(in.getInt()).showCrumbs(in.get() != 0);
+        return b.build();
+    }
+
+    /**
+     * @return A string written by Output.putString.
+     */
+    private static String getString(ByteBuffer in)
+    {
+        byte[] bytes = new byte[in.getShort() & 0xFFFF];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes values to a channel through a buffer.
+     */
+    private static class Output
+    {
+        private FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Output(FileChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        void put(byte b) throws IOException { room(1); buffer.put(b); }
+
+        void putInt(int i) throws IOException { room(4); buffer.putInt(i); }
+
+        void putDouble(double d) throws IOException { room(8); buffer.putDouble(d); }
+
+        void putString(String s) throws IOException
+        {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            room(2);
+            buffer.putShort((short) bytes.length);
+            for(byte b : bytes) {
+                put(b);
+            }
+        }
+
+        /**
+         * Make room in the buffer for the given number of bytes.
+         */
+        private void room(int bytes) throws IOException
+        {
+            if(buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        /**
+         * Write everything in the buffer to the channel.
+         */
+        void flush() throws IOException
+        {
+            buffer.flip();
+            while(buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
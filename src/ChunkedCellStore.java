@@ -0,0 +1,152 @@
+/**
+ * Stores the cells of a field in square tiles, each allocated when a cell
+ * in it is first written. Until then a tile is one shared, empty sentinel,
+ * so a mostly empty field needs memory only in proportion to the area it
+ * uses. Each layer is allocated separately: a trail of crumbs does not
+ * allocate entities, nor a rock crumbs.
+ * 
+ * Cells are still addressed by packed index (row * width + col), so the
+ * torus wraps across tile borders exactly as it does in a flat array; the
+ * store finds the tile of a cell from its row and column.
+ */
+class ChunkedCellStore implements CellStore
+{
+    // A tile is 1 << TILE_BITS cells on each side.
+    private static final int TILE_BITS = 5;
+    private static final int TILE_MASK = (1 << TILE_BITS) - 1;
+    private static final int TILE_CELLS = 1 << (2 * TILE_BITS);
+    // The sentinels standing for tiles that have never been written.
+    // They are shared by every store and must never be written.
+    private static final byte[] NO_TYPES = new byte[TILE_CELLS];
+    private static final Entity[] NO_ENTITIES = new Entity[TILE_CELLS];
+    private static final int[] NO_INTS = new int[TILE_CELLS];
+    
+    private int width;
+    // The number of tiles across the field.
+    private int tilesAcross;
+    private byte[][] types;
+    private Entity[][] entities;
+    private int[][] crumbs;
+    private int[][] stamps;
+    
+    /**
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    ChunkedCellStore(int depth, int width)
+    {
+        this.width = width;
+        tilesAcross = (width + TILE_MASK) >>> TILE_BITS;
+        int tiles = tilesAcross * ((depth + TILE_MASK) >>> TILE_BITS);
+        types = new byte[tiles][];
+        entities = new Entity[tiles][];
+        crumbs = new int[tiles][];
+        stamps = new int[tiles][];
+        for(int t = 0; t < tiles; t++) {
+            types[t] = NO_TYPES;
+            entities[t] = NO_ENTITIES;
+            crumbs[t] = NO_INTS;
+            stamps[t] = NO_INTS;
+        }
+    }
+    
+    /**
+     * @param index The packed index of a cell.
+     * @return The number of the tile holding the cell.
+     */
+    private int tile(int index)
+    {
+        int row = index / width;
+        int col = index - row * width;
+        return (row >>> TILE_BITS) * tilesAcross + (col >>> TILE_BITS);
+    }
+    
+    /**
+     * @param index The packed index of a cell.
+     * @return The position of the cell within its tile.
+     */
+    private int offset(int index)
+    {
+        int row = index / width;
+        int col = index - row * width;
+        return ((row & TILE_MASK) << TILE_BITS) | (col & TILE_MASK);
+    }
+    
+    @Override
+    public byte getType(int index)
+    {
+        return types[tile(index)][offset(index)];
+    }
+    
+    @Override
+    public Entity getEntity(int index)
+    {
+        return entities[tile(index)][offset(index)];
+    }
+    
+    @Override
+    public void setCell(int index, byte type, Entity entity)
+    {
+        int t = tile(index);
+        if(types[t] == NO_TYPES) {
+            if(type == Field.EMPTY) {
+                // Emptying a cell that was never written.
+                return;
+            }
+            types[t] = new byte[TILE_CELLS];
+            entities[t] = new Entity[TILE_CELLS];
+        }
+        types[t][offset(index)] = type;
+        entities[t][offset(index)] = entity;
+    }
+    
+    @Override
+    public int getCrumbs(int index)
+    {
+        return crumbs[tile(index)][offset(index)];
+    }
+    
+    @Override
+    public int getCrumbStamp(int index)
+    {
+        return stamps[tile(index)][offset(index)];
+    }
+    
+    @Override
+    public void setCrumbs(int index, int quantity, int stamp)
+    {
+        int t = tile(index);
+        if(crumbs[t] == NO_INTS) {
+            if(quantity == 0) {
+                // No crumbs, whenever they were written, is no crumbs.
+                return;
+            }
+            crumbs[t] = new int[TILE_CELLS];
+            stamps[t] = new int[TILE_CELLS];
+        }
+        crumbs[t][offset(index)] = quantity;
+        stamps[t][offset(index)] = stamp;
+    }
+    
+    @Override
+    public CellStore copy()
+    {
+        ChunkedCellStore copy = new ChunkedCellStore(0, width);
+        copy.tilesAcross = tilesAcross;
+        copy.types = types.clone();
+        copy.entities = entities.clone();
+        copy.crumbs = crumbs.clone();
+        copy.stamps = stamps.clone();
+        for(int t = 0; t < types.length; t++) {
+            if(types[t] != NO_TYPES) {
+                copy.types[t] = types[t].clone();
+                copy.entities[t] = entities[t].clone();
+            }
+            if(crumbs[t] != NO_INTS) {
+                copy.crumbs[t] = crumbs[t].clone();
+                copy.stamps[t] = stamps[t].clone();
+            }
+        }
+        return copy;
+    }
+}
@@ -1,36 +1,52 @@
-
-public class ClusterGenerator 
-{
-	static Location[] generateClusters(int numOfClusters, int numOfLocations, int fieldWidth, int fieldDepth, double std)
-	{
-		boolean hasRock[][] = new boolean[fieldWidth][fieldDepth];
-		for(int i=0;i<fieldWidth;i++)
-			for(int j=0; j<fieldDepth; j++)
-				hasRock[i][j]=false;
-						
-		Location locations[] = new Location[numOfLocations];
-		Location clusters[] = new Location[numOfLocations];
-		
-		for(int i=0; i<numOfClusters; i++)
-		{
-			int x= ModelConstants.random.nextInt(fieldWidth);
-			int y= ModelConstants.random.nextInt(fieldDepth);
-			clusters[i] = new Location(x,y);
-		}
-		for(int i=0; i<numOfLocations; i++)
-		{
-			int c = ModelConstants.random.nextInt(numOfClusters);
-			int x = clusters[c].getCol() + (int)(std*ModelConstants.random.nextGaussian());
-			int y = clusters[c].getRow() + (int)(std*ModelConstants.random.nextGaussian());
-			x = (x+10*fieldWidth) % fieldWidth;
-			y = (y+10*fieldDepth) % fieldDepth;
-			if(!hasRock[x][y]){
-				locations[i] = new Location(x,y);
-				hasRock[x][y] = true;
-			}
-			else
-				i--;
-		}
-		return locations;
-	}
-}
+
+import java.util.SplittableRandom;
+
+public class ClusterGenerator 
+{
+	/**
+	 * Generate the rock locations of a simulation.
+	 * @param config The configuration of the simulation.
+	 * @param random The simulation's stream of random numbers.
+	 * @return The rock locations.
+	 */
+	static Location[] generateClusters(SimulationConfig config, SplittableRandom random)
+	{
+		return generateClusters(config.getRockClusters(), config.getRockLocations(),
+				config.getWidth(), config.getDepth(), config.getRockClusterStd(), random);
+	}
+	
+	static Location[] generateClusters(int numOfClusters, int numOfLocations, int fieldWidth, int fieldDepth, double std, SplittableRandom random)
+	{
+		// The rocks placed so far, by packed index, so that the memory
+		// needed grows with the number of rocks rather than the field.
+		IntMap<Location> placed = new IntMap<Location>();
+						
+		Location locations[] = new Location[numOfLocations];
+		Location clusters[] = new Location[numOfClusters];
+		
+		for(int i=0; i<numOfClusters; i++)
+		{
+			int x= random.nextInt(fieldWidth);
+			int y= random.nextInt(fieldDepth);
+			clusters[i] = new Location(x,y);
+		}
+		for(int i=0; i<numOfLocations; i++)
+		{
+			// The rock's row x comes from the cluster's y, drawn within
+			// the depth, and its column y from the cluster's x.
+			int c = random.nextInt(numOfClusters);
+			int x = clusters[c].getCol() + (int)(std*random.nextGaussian());
+			int y = clusters[c].getRow() + (int)(std*random.nextGaussian());
+			x = (x+10*fieldDepth) % fieldDepth;
+			y = (y+10*fieldWidth) % fieldWidth;
+			int index = x * fieldWidth + y;
+			if(placed.get(index) == null){
+				locations[i] = new Location(x,y);
+				placed.put(index, locations[i]);
+			}
+			else
+				i--;
+		}
+		return locations;
+	}
+}
@@ -0,0 +1,39 @@
+/**
+ * The collaborative subsumption hierarchy: (1) ≺ (5) ≺ (3) ≺ (6) ≺ (4).
+ * See Vehicle for the details.
+ */
+final class CollaborativeBehaviour implements BehaviourStrategy
+{
+    @Override
+    public void plan(Fleet fleet, int v, Field f, Neighbourhood n, Fleet.Planner planner)
+    {
+        byte plan = 0;
+        int target = -1;
+        int destination = -1;
+        if(fleet.isCarrying(v) && n.nextToMothership) {   // (1)
+            plan = Fleet.DELIVER;
+        }
+        else if(fleet.isCarrying(v)) {                    // (5)
+            destination = fleet.upGradient(v, f, n);
+            if(destination >= 0) {
+                plan = (byte) (Fleet.drop(2) | Fleet.DROP_ONLY_IF_MOVED);
+            }
+            else {
+                destination = Fleet.randomAvailable(n, planner);
+            }
+        }
+        else if(n.rock >= 0) {                            // (3)
+            plan = Fleet.ROCK;
+            target = n.rock;
+        }
+        else if(n.mostCrumbs >= 0) {                      // (6)
+            plan = Fleet.CRUMB;
+            target = n.mostCrumbs;
+            destination = n.downGradient;
+        }
+        else {                                            // (4)
+            destination = Fleet.randomAvailable(n, planner);
+        }
+        fleet.setPlan(v, plan, target, destination);
+    }
+}
@@ -0,0 +1,114 @@
+import java.util.Arrays;
+
+/**
+ * The cells of a field that have changed since a view last drew them, so
+ * that the view need only redraw those. A field and its copies share one
+ * record, which then covers both buffers of a simulation.
+ *
+ * Nothing is recorded until a view watches the field. When so many cells
+ * have changed that listing them costs more than redrawing everything,
+ * or when every cell may have changed at once, the record only says that
+ * all cells are dirty.
+ */
+final class DirtyCells
+{
+    // The packed indices of the changed cells; a cell may be listed twice.
+    private int[] cells = new int[64];
+    private int count;
+    // Whether every cell is to be redrawn.
+    private boolean all;
+    // Whether a view is watching; if not, nothing is recorded.
+    private boolean watched;
+    // The most cells listed before the record gives up and marks all.
+    private final int limit;
+
+    /**
+     * @param area The number of cells in the field.
+     */
+    DirtyCells(int area)
+    {
+        limit = Math.max(64, area / 4);
+    }
+
+    /**
+     * Start recording, with every cell dirty so that the view draws the
+     * whole field first.
+     */
+    public void watch()
+    {
+        if(!watched) {
+            watched = true;
+            markAll();
+        }
+    }
+
+    /**
+     * @return Whether a view is watching, so that changes are recorded.
+     */
+    public boolean isWatched()
+    {
+        return watched;
+    }
+
+    /**
+     * Record that a cell has changed.
+     * @param index The packed index (row * width + col) of the cell.
+     */
+    public void mark(int index)
+    {
+        if(!watched || all) {
+            return;
+        }
+        if(count == limit) {
+            markAll();
+            return;
+        }
+        if(count == cells.length) {
+            cells = Arrays.copyOf(cells, Math.min(limit, count * 2));
+        }
+        cells[count++] = index;
+    }
+
+    /**
+     * Record that any cell may have changed.
+     */
+    public void markAll()
+    {
+        all = true;
+        count = 0;
+    }
+
+    /**
+     * @return Whether every cell is to be redrawn.
+     */
+    public boolean isAll()
+    {
+        return all;
+    }
+
+    /**
+     * @return The number of cells listed, when not all are dirty.
+     */
+    public int size()
+    {
+        return count;
+    }
+
+    /**
+     * @param i The position in the list, from 0 to size() - 1.
+     * @return The packed index of a changed cell.
+     */
+    public int get(int i)
+    {
+        return cells[i];
+    }
+
+    /**
+     * Forget the changes, once they have been drawn.
+     */
+    public void clear()
+    {
+        all = false;
+        count = 0;
+    }
+}
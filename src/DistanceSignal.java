@@ -0,0 +1,290 @@
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The signal of the shortest way around the obstacles to the nearest
+ * mothership. A vehicle can move to any of its eight neighbours, so the
+ * distance of a cell is the fewest such moves that reach a mothership
+ * without entering an obstacle. The signal in a cell is depth * width less
+ * its distance, and a cell from which no mothership can be reached has no
+ * signal at all.
+ * 
+ * The distances are found by a breadth-first search from every mothership
+ * at once, in which large frontiers are expanded in parallel. When a
+ * mothership is added or an obstacle removed, distances can only fall, so
+ * only the cells that come nearer are visited again. Any other change
+ * searches the whole field afresh.
+ */
+class DistanceSignal implements SignalField
+{
+    // The distance of a cell from which no mothership can be reached.
+    private static final int UNREACHED = Integer.MAX_VALUE;
+    // Frontiers no larger than this are expanded on a single thread.
+    private static final int THRESHOLD = 1024;
+    // Atomic access to the distances, so that threads expanding one
+    // frontier together each claim a different cell.
+    private static final VarHandle DISTANCE = MethodHandles.arrayElementVarHandle(int[].class);
+    
+    private int depth, width;
+    // The distance of each cell from the nearest mothership.
+    private int[] distance;
+    // The cells holding a mothership, or null before the signal is emitted.
+    private int[] bases;
+    // The queue of cells whose distance has fallen, reused by each update.
+    private int[] queue;
+    // The pool on which frontiers are expanded, or null.
+    private ForkJoinPool pool;
+    // The number of times the distances have changed.
+    private int version;
+    
+    /**
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    DistanceSignal(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        distance = new int[depth * width];
+        Arrays.fill(distance, UNREACHED);
+        queue = new int[depth * width];
+    }
+    
+    @Override
+    public void emit(Field field, int[] bases)
+    {
+        if(this.bases != null && containsAll(bases, this.bases)) {
+            // Only motherships were added, so no cell gets further away.
+            this.bases = bases.clone();
+            int count = 0;
+            for(int base : bases) {
+                if(distance[base] != 0) {
+                    distance[base] = 0;
+                    queue[count++] = base;
+                }
+            }
+            relax(field, count);
+        }
+        else {
+            this.bases = bases.clone();
+            search(field);
+        }
+        version++;
+    }
+    
+    @Override
+    public void cellChanged(Field field, int index)
+    {
+        if(bases == null) {
+            return;
+        }
+        if(field.getCellType(index) == Field.OBSTACLE) {
+            // Paths through the cell are lost, so cells may get further away.
+            if(distance[index] != UNREACHED) {
+                search(field);
+                version++;
+            }
+        }
+        else {
+            // A new way opens through the cell.
+            int row = index / width;
+            int col = index % width;
+            int nearest = UNREACHED;
+            for(int dr = -1; dr <= 1; dr++) {
+                for(int dc = -1; dc <= 1; dc++) {
+                    nearest = Math.min(nearest, distance[neighbour(row, col, dr, dc)]);
+                }
+            }
+            if(nearest != UNREACHED && nearest + 1 < distance[index]) {
+                distance[index] = nearest + 1;
+                queue[0] = index;
+                relax(field, 1);
+                version++;
+            }
+        }
+    }
+    
+    @Override
+    public int getStrength(int index)
+    {
+        int d = distance[index];
+        return d == UNREACHED ? 0 : depth * width - d;
+    }
+    
+    @Override
+    public int getVersion()
+    {
+        return version;
+    }
+    
+    @Override
+    public void setPool(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+    
+    /**
+     * Find the distance of every cell by a breadth-first search from
+     * all the motherships, one level at a time.
+     * @param field The field holding the obstacles.
+     */
+    private void search(Field field)
+    {
+        Arrays.fill(distance, UNREACHED);
+        int[] frontier = new int[bases.length];
+        int size = 0;
+        for(int base : bases) {
+            if(distance[base] != 0) {
+                distance[base] = 0;
+                frontier[size++] = base;
+            }
+        }
+        frontier = Arrays.copyOf(frontier, size);
+        for(int level = 1; frontier.length > 0; level++) {
+            if(pool == null || frontier.length <= THRESHOLD) {
+                frontier = expand(field, frontier, 0, frontier.length, level);
+            }
+            else {
+                frontier = pool.invoke(new ExpandTask(field, frontier, 0, frontier.length, level));
+            }
+        }
+    }
+    
+    /**
+     * Claim the unvisited neighbours of part of a frontier.
+     * Several threads may expand parts of one frontier at once.
+     * @param field The field holding the obstacles.
+     * @param frontier The cells at the previous level.
+     * @param from Index of the first cell of the part.
+     * @param to Index after the last cell of the part.
+     * @param level The distance of the cells to claim.
+     * @return The cells claimed.
+     */
+    private int[] expand(Field field, int[] frontier, int from, int to, int level)
+    {
+        int[] next = new int[Math.max(16, 2 * (to - from))];
+        int size = 0;
+        for(int i = from; i < to; i++) {
+            int row = frontier[i] / width;
+            int col = frontier[i] % width;
+            for(int dr = -1; dr <= 1; dr++) {
+                for(int dc = -1; dc <= 1; dc++) {
+                    int cell = neighbour(row, col, dr, dc);
+                    if(distance[cell] == UNREACHED && field.getCellType(cell) != Field.OBSTACLE
+                       && DISTANCE.compareAndSet(distance, cell, UNREACHED, level)) {
+                        if(size == next.length) {
+                            next = Arrays.copyOf(next, 2 * size);
+                        }
+                        next[size++] = cell;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(next, size);
+    }
+    
+    /**
+     * Spread a fall in distance from the cells in the queue, all of which
+     * have the same new distance, to every cell that comes nearer.
+     * @param field The field holding the obstacles.
+     * @param count The number of cells in the queue.
+     */
+    private void relax(Field field, int count)
+    {
+        for(int head = 0; head < count; head++) {
+            int row = queue[head] / width;
+            int col = queue[head] % width;
+            int next = distance[queue[head]] + 1;
+            for(int dr = -1; dr <= 1; dr++) {
+                for(int dc = -1; dc <= 1; dc++) {
+                    int cell = neighbour(row, col, dr, dc);
+                    if(distance[cell] > next && field.getCellType(cell) != Field.OBSTACLE) {
+                        distance[cell] = next;
+                        queue[count++] = cell;
+                    }
+                }
+            }
+        }
+    }
+    
+    /**
+     * @return The packed index of the cell at the given offset from a
+     *         cell, wrapped around the torus.
+     */
+    private int neighbour(int row, int col, int dr, int dc)
+    {
+        int r = row + dr;
+        int c = col + dc;
+        if(r < 0) {
+            r += depth;
+        }
+        else if(r >= depth) {
+            r -= depth;
+        }
+        if(c < 0) {
+            c += width;
+        }
+        else if(c >= width) {
+            c -= width;
+        }
+        return r * width + c;
+    }
+    
+    /**
+     * @return Whether every cell of the second array is in the first.
+     */
+    private static boolean containsAll(int[] cells, int[] wanted)
+    {
+        for(int w : wanted) {
+            boolean found = false;
+            for(int c : cells) {
+                found |= c == w;
+            }
+            if(!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Expands a range of a frontier, splitting it between the threads
+     * of the pool.
+     */
+    private class ExpandTask extends RecursiveTask<int[]>
+    {
+        static final long serialVersionUID = 1L;
+        
+        private Field field;
+        private int[] frontier;
+        private int from, to, level;
+        
+        ExpandTask(Field field, int[] frontier, int from, int to, int level)
+        {
+            this.field = field;
+            this.frontier = frontier;
+            this.from = from;
+            this.to = to;
+            this.level = level;
+        }
+        
+        @Override
+        protected int[] compute()
+        {
+            if(to - from <= THRESHOLD) {
+                return expand(field, frontier, from, to, level);
+            }
+            int middle = (from + to) >>> 1;
+            ExpandTask left = new ExpandTask(field, frontier, from, middle, level);
+            left.fork();
+            int[] right = new ExpandTask(field, frontier, middle, to, level).compute();
+            int[] first = left.join();
+            int[] both = Arrays.copyOf(first, first.length + right.length);
+            System.arraycopy(right, 0, both, first.length, right.length);
+            return both;
+        }
+    }
+}
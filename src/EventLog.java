@@ -0,0 +1,432 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A record of everything the vehicles do, step by step, from which the
+ * state of a simulation at any later step can be rebuilt from a
+ * checkpoint without simulating again (see Simulator.replay).
+ *
+ * The events are those of Fleet.apply: a move to a neighbouring cell,
+ * the delivery of a sample, the pick up of a rock or of a crumb, and the
+ * drop of crumbs. Every cell an event names is next to the vehicle, so it
+ * is written as one of the nine directions around the vehicle's cell,
+ * and vehicles act in order of their numbers, so each is written as the
+ * difference from the number of the one before. An event is then a
+ * single varint
+ *
+ *   (vehicle difference << 7) | (direction << 3) | kind
+ *
+ * followed by the number of crumbs for a drop. A step ends with a single
+ * zero byte. Most events take one or two bytes.
+ *
+ * The file starts with int magic, int version, int depth, int width and
+ * the int step the log starts from. Events are gathered in buffers that
+ * a background thread writes out, so the simulation does not wait for
+ * the disk.
+ */
+final class EventLog implements Closeable
+{
+    // The kinds of events.
+    static final int STEP = 0;
+    static final int MOVE = 1;
+    static final int DELIVER = 2;
+    static final int ROCK = 3;
+    static final int CRUMB = 4;
+    static final int DROP = 5;
+
+    // The direction of the vehicle's own cell.
+    private static final int HERE = 4;
+    // "MEVT", the first four bytes of every log.
+    private static final int MAGIC = 0x4D455654;
+    // The version of the format written.
+    private static final int VERSION = 1;
+    // The size of each buffer, and the number of buffers.
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int BUFFERS = 4;
+    // More than the largest event.
+    private static final int LARGEST_EVENT = 16;
+    // Handed to the writer to tell it there is nothing more to write.
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final int depth;
+    private final int width;
+    private final FileChannel channel;
+    // Empty buffers, and buffers waiting to be written.
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<ByteBuffer>(BUFFERS);
+    private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<ByteBuffer>(BUFFERS + 1);
+    private final Thread writer;
+    // The first failure of the writer, reported by close.
+    private volatile IOException failure;
+    // The buffer events are being added to.
+    private ByteBuffer buffer;
+    // The number of the vehicle of the last event of this step.
+    private int lastVehicle;
+
+    /**
+     * Start a log.
+     * @param file The file to write; any existing file is replaced.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param firstStep The step the first events logged will follow.
+     * @throws IOException If the file cannot be created.
+     */
+    EventLog(Path file, int depth, int width, int firstStep) throws IOException
+    {
+        this.depth = depth;
+        this.width = width;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        for(int i = 0; i < BUFFERS; i++) {
+            free.add(ByteBuffer.allocate(BUFFER_SIZE));
+        }
+        buffer = free.remove();
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(depth);
+        buffer.putInt(width);
+        buffer.putInt(firstStep);
+
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                write();
+            }
+        }, "event log writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Record a move to a neighbouring cell.
+     * @param vehicle The number of the vehicle.
+     * @param from The vehicle's cell.
+     * @param to The cell it moves to.
+     */
+    public void move(int vehicle, int from, int to)
+    {
+        event(vehicle, direction(from, to), MOVE);
+    }
+
+    /**
+     * Record the delivery of a sample to the mothership.
+     * @param vehicle The number of the vehicle.
+     */
+    public void deliver(int vehicle)
+    {
+        event(vehicle, HERE, DELIVER);
+    }
+
+    /**
+     * Record the pick up of a rock.
+     * @param vehicle The number of the vehicle.
+     * @param at The vehicle's cell.
+     * @param cell The cell of the rock.
+     */
+    public void pickUpRock(int vehicle, int at, int cell)
+    {
+        event(vehicle, direction(at, cell), ROCK);
+    }
+
+    /**
+     * Record the pick up of a crumb.
+     * @param vehicle The number of the vehicle.
+     * @param at The vehicle's cell.
+     * @param cell The cell of the crumb.
+     */
+    public void pickUpCrumb(int vehicle, int at, int cell)
+    {
+        event(vehicle, direction(at, cell), CRUMB);
+    }
+
+    /**
+     * Record the drop of crumbs.
+     * @param vehicle The number of the vehicle.
+     * @param at The vehicle's cell.
+     * @param cell The cell the crumbs are dropped on.
+     * @param quantity The number of crumbs.
+     */
+    public void dropCrumbs(int vehicle, int at, int cell, int quantity)
+    {
+        event(vehicle, direction(at, cell), DROP);
+        putVarint(quantity);
+    }
+
+    /**
+     * Record the end of a step.
+     */
+    public void endStep()
+    {
+        room();
+        buffer.put((byte) STEP);
+        lastVehicle = 0;
+    }
+
+    /**
+     * Write out all the events recorded and close the file.
+     * @throws IOException If any of the log could not be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try {
+            full.put(buffer);
+            full.put(END);
+            writer.join();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing the event log", e);
+        }
+        finally {
+            channel.close();
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Add an event to the buffer.
+     */
+    private void event(int vehicle, int direction, int kind)
+    {
+        if(vehicle < lastVehicle) {
+            throw new IllegalArgumentException("Vehicle " + vehicle + " acted after vehicle " + lastVehicle);
+        }
+        room();
+        putVarint(((long) (vehicle - lastVehicle) << 7) | (direction << 3) | kind);
+        lastVehicle = vehicle;
+    }
+
+    /**
+     * @return The direction of a cell next to another, from 0 (up and
+     *         left) through 4 (the cell itself) to 8 (down and right).
+     */
+    private int direction(int from, int to)
+    {
+        int rows = to / width - from / width;
+        int cols = to % width - from % width;
+        // The field wraps around at its edges.
+        if(rows > 1) rows -= depth;
+        if(rows < -1) rows += depth;
+        if(cols > 1) cols -= width;
+        if(cols < -1) cols += width;
+        if(rows < -1 || rows > 1 || cols < -1 || cols > 1) {
+            throw new IllegalArgumentException("Cell " + to + " is not next to cell " + from);
+        }
+        return (rows + 1) * 3 + cols + 1;
+    }
+
+    private void putVarint(long value)
+    {
+        while((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Make room in the buffer for the largest event, handing it to the
+     * writer if it is nearly full.
+     */
+    private void room()
+    {
+        if(buffer.remaining() < LARGEST_EVENT) {
+            try {
+                full.put(buffer);
+                buffer = free.take();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while logging events", e);
+            }
+        }
+    }
+
+    /**
+     * Write out buffers as they fill, until the log is closed. After a
+     * failure the buffers are still taken, so that the simulation never
+     * waits, but nothing more is written.
+     */
+    private void write()
+    {
+        try {
+            for(ByteBuffer b = full.take(); b != END; b = full.take()) {
+                b.flip();
+                try {
+                    while(failure == null && b.hasRemaining()) {
+                        channel.write(b);
+                    }
+                }
+                catch (IOException e) {
+                    failure = e;
+                }
+                b.clear();
+                free.put(b);
+            }
+        }
+        catch (InterruptedException e) {
+            failure = new IOException("The event log writer was interrupted", e);
+        }
+    }
+
+    /**
+     * Reads a log back one event at a time.
+     */
+    static final class Reader implements Closeable
+    {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final int depth;
+        private final int width;
+        // The step whose events are being read.
+        private int step;
+        // The last event read.
+        private int vehicle;
+        private int direction;
+        private int quantity;
+        // Whether some of the events of the current step have been read.
+        private boolean partway;
+
+        /**
+         * Open a log and read its header.
+         * @param file The file to read.
+         * @throws IOException If the file cannot be read, or is not a log
+         *         of a version this code can read.
+         */
+        Reader(Path file) throws IOException
+        {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            buffer.flip();
+            try {
+                if(!fill(20) || buffer.getInt() != MAGIC) {
+                    throw new IOException(file + " is not an event log");
+                }
+                int version = buffer.getInt();
+                if(version != VERSION) {
+                    throw new IOException(file + " is an event log of version " + version
+                                          + ", which cannot be read");
+                }
+                depth = buffer.getInt();
+                width = buffer.getInt();
+                step = buffer.getInt();
+            }
+            catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        public int getDepth() { return depth; }
+
+        public int getWidth() { return width; }
+
+        /**
+         * @return The step that the events about to be read lead to,
+         *         less one.
+         */
+        public int getStep() { return step; }
+
+        /**
+         * Read the next event.
+         * @return The kind of the event, or -1 at the end of the log.
+         * @throws IOException If the log cannot be read, or ends partway
+         *         through a step.
+         */
+        public int next() throws IOException
+        {
+            if(!fill(1)) {
+                if(partway) {
+                    throw new EOFException("The event log ends partway through step " + (step + 1));
+                }
+                return -1;
+            }
+            long tag = getVarint();
+            int kind = (int) (tag & 7);
+            if(kind == STEP) {
+                step++;
+                vehicle = 0;
+                partway = false;
+                return STEP;
+            }
+            partway = true;
+            vehicle += (int) (tag >>> 7);
+            direction = (int) ((tag >>> 3) & 15);
+            if(direction > 8 || kind > DROP) {
+                throw new IOException("The event log is corrupt at step " + (step + 1));
+            }
+            if(kind == DROP) {
+                quantity = (int) getVarint();
+            }
+            return kind;
+        }
+
+        /**
+         * @return The number of the vehicle of the last event.
+         */
+        public int getVehicle() { return vehicle; }
+
+        /**
+         * @return The number of crumbs of the last drop.
+         */
+        public int getQuantity() { return quantity; }
+
+        /**
+         * @param at The vehicle's cell.
+         * @return The cell the last event names.
+         */
+        public int getCell(int at)
+        {
+            int row = (at / width + direction / 3 - 1 + depth) % depth;
+            int col = (at % width + direction % 3 - 1 + width) % width;
+            return row * width + col;
+        }
+
+        @Override
+        public void close() throws IOException
+        {
+            channel.close();
+        }
+
+        private long getVarint() throws IOException
+        {
+            long value = 0;
+            for(int shift = 0; ; shift += 7) {
+                if(!fill(1)) {
+                    throw new EOFException("The event log ends partway through step " + (step + 1));
+                }
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if(b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        /**
+         * Read more of the file if fewer than the given bytes are left.
+         * @return Whether the bytes are now there.
+         */
+        private boolean fill(int bytes) throws IOException
+        {
+            if(buffer.remaining() >= bytes) {
+                return true;
+            }
+            buffer.compact();
+            int read = 0;
+            while(buffer.position() < bytes && read >= 0) {
+                read = channel.read(buffer);
+            }
+            buffer.flip();
+            return buffer.remaining() >= bytes;
+        }
+    }
+}
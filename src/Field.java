@@ -1,345 +1,821 @@
-
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Random;
-
-/**
- * Represent a rectangular grid of field positions.
- * Each position is able to store a single entity.
- * 
- * @author David J. Barnes and Michael Kolling
- * @author Maria Chli
- * @version 22-Oct-2008
- */
-public class Field
-{
-	// The depth and width of the field.
-	private int depth, width;
-	// Storage for the entities.
-	private Entity[][] field;
-	// Storage for the crumbs.
-	private int[][] crumbsQuant;
-	private int[][] signalStrength;
-	
-	
-	/**
-	 * Represent a field of the given dimensions.
-	 * The topology of the grid is torus shaped. 
-	 * @param depth The depth of the field.
-	 * @param width The width of the field.
-	 */
-	public Field(int depth, int width)
-	{
-		this.depth = depth;
-		this.width = width;
-		field = new Entity[depth][width];
-		crumbsQuant = new int[depth][width];
-		signalStrength = new int[depth][width];
-		for(int row = 0; row < depth; row++) {
-			for(int col = 0; col < width; col++) {
-				crumbsQuant[row][col] = 0;
-				signalStrength[row][col] = 0;
-			}
-		}
-		
-	}
-	
-	public void setSignalStrength(int row, int col, int signal)
-	{
-		signalStrength[row][col]=signal;
-	}
-	
-	public int getSignalStrength(int row, int col)
-	{
-		return signalStrength[row][col];
-	}
-	
-	public int getSignalStrength(Location loc)
-	{
-		return getSignalStrength(loc.getRow(),loc.getCol());
-	}
-	
-	/**
-	 * Empty the field.
-	 */
-	public void clear()
-	{
-		for(int row = 0; row < depth; row++) {
-			for(int col = 0; col < width; col++) {
-				field[row][col] = null;
-			}
-		}
-	}
-	
-	/**
-	 * Place an entity at the given location.
-	 * If there is already an entity at the location it will
-	 * be lost.
-         * @param entity The entity to be placed
-	 * @param row Row coordinate of the location.
-	 * @param col Column coordinate of the location.
-	 */
-	public void place(Entity entity, int row, int col)
-	{
-		place(entity, new Location(row, col));
-	}
-	
-	/**
-	 * Place an entity at the given location.
-	 * If there is already an entity at the location it will
-	 * be lost.
-	 * @param entity The entity to be placed.
-	 * @param location Where to place the entity.
-	 */
-	public void place(Entity entity, Location location)
-	{
-		field[location.getRow()][location.getCol()] = entity;
-	}
-	
-	/**
-	 * Clear the given location.
-	 * If there is an entity at the location it will
-	 * be lost.
-	 * @param location The location to be cleared.
-	 */
-	public void clearLocation(Location location)
-	{
-		field[location.getRow()][location.getCol()] = null;
-	}
-	
-	/**
-	 * Return the entity at the given location, if any.
-	 * @param location Where in the field.
-	 * @return The entity at the given location, or null if there is none.
-	 */
-	public Entity getObjectAt(Location location)
-	{
-		return getObjectAt(location.getRow(), location.getCol());
-	}
-	
-	/**
-	 * Return the entity at the given location, if any.
-	 * @param row The desired row.
-	 * @param col The desired column.
-	 * @return The entity at the given location, or null if there is none.
-	 */
-	public Entity getObjectAt(int row, int col)
-	{
-		return field[row][col];
-	}
-
-	/**
-	 * Return all free locations that are adjacent to the
-	 * given location. If there is none, then return an empty list.
-	 * @param location The location from which to generate an adjacency.
-	 * @return A list of valid location within the grid area. This may be 
-	 *         the empty list if all locations around are full.
-	 */
-	public ArrayList<Location> getAllfreeAdjacentLocations(Location location)
-	{
-		Iterator<Location> adjacent = adjacentLocations(location);
-		ArrayList<Location> freeLocations = new ArrayList<Location>();
-		while(adjacent.hasNext()) {
-			Location next = (Location) adjacent.next();
-			if(field[next.getRow()][next.getCol()] == null) {
-				freeLocations.add(next);
-			}
-		}
-		return freeLocations;
-	}
-	
-
-	/**
-	 * Try to find a free location that is adjacent to the
-	 * given location. If there is none, then return the current
-	 * location if it is free. If not, return null.
-	 * The returned location will be within the valid bounds
-	 * of the field.
-	 * @param location The location from which to generate an adjacency.
-	 * @return A valid location within the grid area. This may be the
-	 *         same object as the location parameter, or null if all
-	 *         locations around are full.
-	 */
-	public Location freeAdjacentLocation(Location location)
-	{
-		Iterator<Location> adjacent = adjacentLocations(location);
-		while(adjacent.hasNext()) {
-			Location next = (Location) adjacent.next();
-			if(field[next.getRow()][next.getCol()] == null) {
-				return next;
-			}
-		}
-		// check whether current location is free
-		if(field[location.getRow()][location.getCol()] == null) {
-			return location;
-		} 
-		else {
-			return null;
-		}
-	}
-	
-	
-	/*
-	 * 
-	 * @return A copy of this field
-	 */
-	public Field cloneField()
-	{
-		Field clone = new Field(this.getDepth(), this.getWidth());
-		for(int row = 0; row < depth; row++) {
-			for(int col = 0; col < width; col++) {
-				clone.field[row][col] = this.field[row][col];
-				clone.crumbsQuant[row][col] = this.crumbsQuant[row][col];
-				clone.signalStrength[row][col] = this.signalStrength[row][col];
-			}
-		}
-		return clone;	
-	}
-
-	/**
-	 * Generate an iterator over a shuffled list of locations adjacent
-	 * to the given one. The list will not include the location itself.
-	 * All locations will lie within the grid.
-	 * The topology of the grid is torus shaped. 
-	 * This means that it is like a chessboard but when a piece goes beyond the 
-	 * bottom row it reappears from the first row and vice versa. 
-	 * Similarly when it goes beyond the rightmost column it reappears from the 
-	 * leftmost column and vice versa.
-	 * @param location The location from which to generate adjacencies.
-	 * @return An iterator over locations adjacent to that given.
-	 */
-	private Iterator<Location> adjacentLocations(Location location)
-	{
-		return adjacentLocations(location, 1);		
-	}
-	
-	/**
-	 * Detect if specified class is adjacent
-	 * @param loc The location from which to generate adjacencies.
-         * @param c The class of the object to check for
-	 * @return boolean.
-	 */
-	public <T> boolean isNeighbourTo(Location loc, Class<T> c)
-	{
-		Iterator<Location> it = adjacentLocations(loc,1);
-		while(it.hasNext()){
-			Entity e = getObjectAt(it.next());
-			if(e!=null && e.getClass()==c)
-				return true;
-		}
-		return false;
-	}
-	
-	public <T> Location getNeighbour(Location loc, Class<T> c)
-	{
-		Iterator<Location> it = adjacentLocations(loc,1);
-		while(it.hasNext()){
-			Location adjLoc = it.next();
-			Entity e = getObjectAt(adjLoc);
-			if(e!=null && e.getClass()==c)
-				return adjLoc;
-		}
-		return null;
-	}
-	
-	/**
-	 * Generate an iterator over a shuffled list of locations within
-	 * "manhattan distance" w to the given one. The list will not include the location itself.
-	 * All locations will lie within the grid.
-	 * The topology of the grid is torus shaped. 
-	 * This means that it is like a chessboard but when a piece goes beyond the 
-	 * bottom row it reappears from the first row and vice versa. 
-	 * Similarly when it goes beyond the rightmost column it reappears from the 
-	 * leftmost column and vice versa.
-	 * @param location The location from which to generate adjacencies.
-	 * @param w The "manhattan" radius of the neighbourhood.
-	 * @return An iterator over locations adjacent to that given.
-	 */
-	private Iterator<Location> adjacentLocations(Location location, int w)
-	{
-		int row = location.getRow();
-		int col = location.getCol();
-		LinkedList<Location> locations = new LinkedList<Location>();
-		for(int roffset = -w; roffset <= w; roffset++) 
-		{
-			int nextRow = row + roffset;
-			//if(nextRow >= 0 && nextRow < depth) {
-			for(int coffset = -w; coffset <= w; coffset++) 
-			{
-				int nextCol = col + coffset;
-				// Exclude invalid locations and the original location.
-/*
-					if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-						locations.add(new Location(nextRow, nextCol));
-					}
-*/
-				if(nextCol<0)
-					nextCol = nextCol + width;
-				if(nextCol>=width)
-					nextCol = nextCol - width;
-				if(nextRow<0)
-					nextRow = nextRow + depth;
-				if(nextRow>=depth)
-					nextRow = nextRow - depth;
-				locations.add(new Location(nextRow, nextCol));
-				}
-			//}
-		}
-		Random rand = ModelConstants.random;
-		Collections.shuffle(locations,rand);
-		return locations.iterator();
-	}
-	
-	public void reduceCrumbs()
-	{
-		for(int row = 0; row < depth; row++) {
-			for(int col = 0; col < width; col++) {
-				if(crumbsQuant[row][col]>0){
-					crumbsQuant[row][col]--;
-				}
-			}
-		}
-	}
-	
-
-	/**
-	 * @return The depth of the field.
-	 */
-	public int getDepth()
-	{
-		return depth;
-	}
-	
-	/**
-	 * @return The width of the field.
-	 */
-	public int getWidth()
-	{
-		return width;
-	}
-	
-	/**
-	 * Return the number of crumbs at the given location, if any.
-         * @param l The location to check
-	 * @return The number of crumbs at the given location.
-	 */
-    public int getCrumbQuantityAt(Location l)
-    {
-    	return this.crumbsQuant[l.getRow()][l.getCol()];
-    }
-    
-    public void pickUpACrumb(Location l)
-    {
-    	if(this.getCrumbQuantityAt(l)>0){
-    		this.crumbsQuant[l.getRow()][l.getCol()]--;
-    	}
-    }
-    public void dropCrumbs(Location l, int q)
-    {
-    	if(this.getCrumbQuantityAt(l)<10-q){
-    		this.crumbsQuant[l.getRow()][l.getCol()] += q; 
-    	}
-    }
-}
+
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Represent a rectangular grid of field positions.
+ * Each position is able to store a single entity.
+ * 
+ * @author David J. Barnes and Michael Kolling
+ * @author Maria Chli
+ * @version 22-Oct-2008
+ */
+public class Field
+{
+	// The number of precomputed visiting orders for a neighbourhood.
+	static final int ORDERS = 1024;
+	// Random permutations of the nine cells of a neighbourhood, ORDERS of them
+	// laid out one after the other. Each entry is an offset 0..8, i.e.
+	// (row offset + 1) * 3 + (column offset + 1).
+	private static final byte[] orders = makeOrders();
+	
+	// The kinds of cell held in the cell-type layer.
+	static final byte EMPTY = 0;
+	static final byte ROCK = 1;
+	static final byte OBSTACLE = 2;
+	static final byte VEHICLE = 3;
+	static final byte MOTHERSHIP = 4;
+	// A kind matching no cell, for classes that are not stored in a field.
+	static final byte NO_TYPE = -1;
+	
+	// The depth and width of the field.
+	private int depth, width;
+	// Storage for the kind, the entity and the crumbs of each cell, indexed
+	// by row * width + col. Crumbs evaporate lazily: a cell holds the
+	// number of crumbs it had when last written, and the evaporation clock
+	// at that time. The crumbs it holds now are found when they are read.
+	private CellStore store;
+	// The number of times crumbs have evaporated from every cell.
+	private int evaporations;
+	// The number of cells of each kind, indexed by kind and kept up to
+	// date as cells change, so the population is known without a scan.
+	private int[] typeCounts;
+	// The mothership's signal, and the way home derived from it.
+	// Shared with any copies of this field.
+	private SignalField signal;
+	private FlowField flow;
+	// The cells (as row * width + col) changed since the changes were last
+	// copied to another buffer. A cell changed twice is listed twice; copying
+	// it twice does no harm, and needs no mark for every cell of the field.
+	private int[] changed;
+	private int changedCount;
+	// The cells changed since a view last drew them, shared with any
+	// copies of this field.
+	private DirtyCells dirty;
+	// The cells holding crumbs, so that evaporation marks only those as
+	// changed. Kept only while a view watches, from the first evaporation
+	// it sees, and otherwise null.
+	private IntSet crumbCells;
+	// Torus wrapping tables: wrapRow[r + 1] is the row r, for r from -1 to depth,
+	// wrapped into the grid. wrapCol does the same for columns.
+	private int[] wrapRow, wrapCol;
+	// A cursor reused by the location-based neighbourhood queries,
+	// and the source of randomness ordering their neighbourhoods.
+	private Neighbourhood scratch;
+	private SplittableRandom random;
+	
+	
+	/**
+	 * Represent a field of the given dimensions, stored in flat arrays.
+	 * The topology of the grid is torus shaped. 
+	 * @param depth The depth of the field.
+	 * @param width The width of the field.
+	 * @param random The simulation's stream of random numbers.
+	 */
+	public Field(int depth, int width, SplittableRandom random)
+	{
+		this(depth, width, random, new ArrayCellStore(area(depth, width)));
+	}
+	
+	/**
+	 * Represent a field of the given dimensions in the given store.
+	 * The topology of the grid is torus shaped. 
+	 * @param depth The depth of the field.
+	 * @param width The width of the field.
+	 * @param random The simulation's stream of random numbers.
+	 * @param store The empty store to keep the cells in.
+	 */
+	public Field(int depth, int width, SplittableRandom random, CellStore store)
+	{
+		this(depth, width, random, store, new SeparableSignal(depth, width),
+		     new FlowField(depth, width), new DirtyCells(area(depth, width)));
+	}
+	
+	/**
+	 * Represent a field of the given dimensions using the given signal.
+	 * @param depth The depth of the field.
+	 * @param width The width of the field.
+	 * @param random The simulation's stream of random numbers.
+	 * @param store The store to keep the cells in.
+	 * @param signal The signal, possibly shared with another field.
+	 * @param flow The way home, shared with the same fields as the signal.
+	 * @param dirty The changes a view has not drawn, also shared.
+	 */
+	private Field(int depth, int width, SplittableRandom random, CellStore store,
+	              SignalField signal, FlowField flow, DirtyCells dirty)
+	{
+		this.depth = depth;
+		this.width = width;
+		this.store = store;
+		evaporations = 0;
+		typeCounts = new int[MOTHERSHIP + 1];
+		typeCounts[EMPTY] = area(depth, width);
+		this.signal = signal;
+		this.flow = flow;
+		this.dirty = dirty;
+		changed = new int[64];
+		changedCount = 0;
+		wrapRow = makeWrapTable(depth);
+		wrapCol = makeWrapTable(width);
+		scratch = new Neighbourhood();
+		this.random = random;
+	}
+	
+	/**
+	 * Cells are addressed by an int index, so a field can have no more
+	 * than Integer.MAX_VALUE cells, e.g. 46340 x 46340.
+	 * @param depth The depth of a field.
+	 * @param width The width of a field.
+	 * @return The number of cells in the field.
+	 * @throws IllegalArgumentException If the field has too many cells.
+	 */
+	private static int area(int depth, int width)
+	{
+		long area = (long) depth * width;
+		if(area > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A field of " + depth + " x " + width
+			                                   + " has too many cells to address");
+		}
+		return (int) area;
+	}
+	
+	/**
+	 * @param size The number of rows or columns in the grid.
+	 * @return A table mapping each position from -1 to size, offset by one,
+	 *         to its position wrapped around the torus.
+	 */
+	private static int[] makeWrapTable(int size)
+	{
+		int[] wrap = new int[size + 2];
+		for(int i = 0; i < size + 2; i++) {
+			wrap[i] = (i - 1 + size) % size;
+		}
+		return wrap;
+	}
+	
+	/**
+	 * @return ORDERS random permutations of the offsets 0..8.
+	 */
+	private static byte[] makeOrders()
+	{
+		Random rand = new Random(ORDERS);
+		byte[] table = new byte[ORDERS * Neighbourhood.SIZE];
+		for(int p = 0; p < ORDERS; p++) {
+			int base = p * Neighbourhood.SIZE;
+			for(int i = 0; i < Neighbourhood.SIZE; i++) {
+				table[base + i] = (byte) i;
+			}
+			// Fisher-Yates shuffle
+			for(int i = Neighbourhood.SIZE - 1; i > 0; i--) {
+				int j = rand.nextInt(i + 1);
+				byte swap = table[base + i];
+				table[base + i] = table[base + j];
+				table[base + j] = swap;
+			}
+		}
+		return table;
+	}
+	
+	/**
+	 * @param entity An entity, or null.
+	 * @return The kind of cell holding that entity.
+	 */
+	static byte cellTypeOf(Entity entity)
+	{
+		if(entity == null) {
+			return EMPTY;
+		}
+		return cellTypeOf(entity.getClass());
+	}
+	
+	/**
+	 * @param c A class of entity.
+	 * @return The kind of cell holding entities of exactly that class,
+	 *         or NO_TYPE if they are not stored in a field.
+	 */
+	static byte cellTypeOf(Class<?> c)
+	{
+		if(c == Vehicle.class) {
+			return VEHICLE;
+		}
+		else if(c == Rock.class) {
+			return ROCK;
+		}
+		else if(c == Obstacle.class) {
+			return OBSTACLE;
+		}
+		else if(c == Mothership.class) {
+			return MOTHERSHIP;
+		}
+		else {
+			return NO_TYPE;
+		}
+	}
+	
+	/**
+	 * Use a different kind of signal. It must be set before the
+	 * field is copied, as the copies share it.
+	 * @param signal The signal the mothership emits.
+	 */
+	public void setSignal(SignalField signal)
+	{
+		this.signal = signal;
+	}
+	
+	/**
+	 * @return The signal the mothership emits.
+	 */
+	public SignalField getSignal()
+	{
+		return signal;
+	}
+	
+	/**
+	 * Find the way home from a cell. The answer is worked out once and
+	 * kept until the signal or the obstacles nearby change, so when
+	 * vehicles plan in parallel every cell they ask about must first have
+	 * been asked about on one thread.
+	 * @param index The packed index (row * width + col) of a cell.
+	 * @return The packed index of the neighbour with the strongest signal
+	 *         that is not an obstacle, if it is stronger than in the cell,
+	 *         otherwise -1. The neighbour may hold a vehicle or a rock.
+	 */
+	public int nextHop(int index)
+	{
+		return flow.nextHop(this, index);
+	}
+	
+	public int getSignalStrength(int row, int col)
+	{
+		return signal.getStrength(row * width + col);
+	}
+	
+	public int getSignalStrength(Location loc)
+	{
+		return getSignalStrength(loc.getRow(),loc.getCol());
+	}
+	
+	/**
+	 * @param index The packed index (row * width + col) of a cell.
+	 * @return The strength of the mothership's signal in that cell.
+	 */
+	public int getSignalStrength(int index)
+	{
+		return signal.getStrength(index);
+	}
+	
+	/**
+	 * Empty the field. A field that is already empty, as a new one is,
+	 * is left alone rather than scanned.
+	 */
+	public void clear()
+	{
+		if(typeCounts[EMPTY] == depth * width) {
+			return;
+		}
+		for(int index = 0; index < depth * width; index++) {
+			if(store.getType(index) != EMPTY) {
+				setCell(index, null);
+			}
+		}
+	}
+	
+	/**
+	 * Place an entity at the given location.
+	 * If there is already an entity at the location it will
+	 * be lost.
+         * @param entity The entity to be placed
+	 * @param row Row coordinate of the location.
+	 * @param col Column coordinate of the location.
+	 */
+	public void place(Entity entity, int row, int col)
+	{
+		place(entity, new Location(row, col));
+	}
+	
+	/**
+	 * Place an entity at the given location.
+	 * If there is already an entity at the location it will
+	 * be lost.
+	 * @param entity The entity to be placed.
+	 * @param location Where to place the entity.
+	 */
+	public void place(Entity entity, Location location)
+	{
+		setCell(location.getRow() * width + location.getCol(), entity);
+	}
+	
+	/**
+	 * Clear the given location.
+	 * If there is an entity at the location it will
+	 * be lost.
+	 * @param location The location to be cleared.
+	 */
+	public void clearLocation(Location location)
+	{
+		setCell(location.getRow() * width + location.getCol(), null);
+	}
+	
+	/**
+	 * Place an entity in the cell with the given packed index.
+	 * If there is already an entity in the cell it will be lost.
+	 * @param entity The entity to be placed, or null to clear the cell.
+	 * @param index The packed index (row * width + col) of the cell.
+	 */
+	public void place(Entity entity, int index)
+	{
+		setCell(index, entity);
+	}
+	
+	/**
+	 * Store an entity, or nothing, in a cell and record its kind.
+	 * @param index The packed index of the cell.
+	 * @param entity The entity to store, or null to empty the cell.
+	 */
+	private void setCell(int index, Entity entity)
+	{
+		byte type = cellTypeOf(entity);
+		byte previous = store.getType(index);
+		typeCounts[previous]--;
+		typeCounts[type]++;
+		// Rocks and obstacles are known by their kind alone, so only the
+		// vehicles and the mothership are kept as entities.
+		store.setCell(index, type, type == ROCK || type == OBSTACLE ? null : entity);
+		markChanged(index);
+		if((previous == OBSTACLE) != (type == OBSTACLE)) {
+			signal.cellChanged(this, index);
+			flow.cellChanged(index);
+		}
+	}
+	
+	/**
+	 * Return the entity at the given location, if any.
+	 * @param location Where in the field.
+	 * @return The entity at the given location, or null if there is none.
+	 */
+	public Entity getObjectAt(Location location)
+	{
+		return getObjectAt(location.getRow(), location.getCol());
+	}
+	
+	/**
+	 * Return the entity at the given location, if any. The field keeps
+	 * rocks and obstacles by kind alone, so for them a new Rock or
+	 * Obstacle at the location is returned.
+	 * @param row The desired row.
+	 * @param col The desired column.
+	 * @return The entity at the given location, or null if there is none.
+	 */
+	public Entity getObjectAt(int row, int col)
+	{
+		int index = row * width + col;
+		byte type = store.getType(index);
+		if(type == ROCK) {
+			return new Rock(new Location(row, col));
+		}
+		else if(type == OBSTACLE) {
+			return new Obstacle(new Location(row, col));
+		}
+		return store.getEntity(index);
+	}
+	
+	/**
+	 * Return the vehicle or the mothership in the cell with the given
+	 * packed index, if any. Rocks and obstacles are known only by the
+	 * kind of their cell; see getCellType.
+	 * @param index The packed index (row * width + col) of the cell.
+	 * @return The vehicle or the mothership in the cell, or null.
+	 */
+	public Entity getEntity(int index)
+	{
+		return store.getEntity(index);
+	}
+	
+	/**
+	 * @param index The packed index (row * width + col) of a cell.
+	 * @return The kind of cell, e.g. EMPTY or VEHICLE.
+	 */
+	public byte getCellType(int index)
+	{
+		return store.getType(index);
+	}
+	
+	/**
+	 * @param type A kind of cell, e.g. ROCK or EMPTY.
+	 * @return The number of cells of that kind in the field.
+	 */
+	public int getCount(byte type)
+	{
+		return typeCounts[type];
+	}
+
+	/**
+	 * Return all free locations that are adjacent to the
+	 * given location. If there is none, then return an empty list.
+	 * @param location The location from which to generate an adjacency.
+	 * @return A list of valid location within the grid area. This may be 
+	 *         the empty list if all locations around are full.
+	 */
+	public ArrayList<Location> getAllfreeAdjacentLocations(Location location)
+	{
+		Neighbourhood adjacent = neighbourhood(location.getRow(), location.getCol(), scratch);
+		ArrayList<Location> freeLocations = new ArrayList<Location>();
+		for(int i = 0; i < adjacent.size(); i++) {
+			int next = adjacent.get(i);
+			if(store.getType(next) == EMPTY) {
+				freeLocations.add(new Location(next / width, next % width));
+			}
+		}
+		return freeLocations;
+	}
+	
+
+	/**
+	 * Try to find a free location that is adjacent to the
+	 * given location. If there is none, then return the current
+	 * location if it is free. If not, return null.
+	 * The returned location will be within the valid bounds
+	 * of the field.
+	 * @param location The location from which to generate an adjacency.
+	 * @return A valid location within the grid area. This may be the
+	 *         same object as the location parameter, or null if all
+	 *         locations around are full.
+	 */
+	public Location freeAdjacentLocation(Location location)
+	{
+		Neighbourhood adjacent = neighbourhood(location.getRow(), location.getCol(), scratch);
+		for(int i = 0; i < adjacent.size(); i++) {
+			int next = adjacent.get(i);
+			if(store.getType(next) == EMPTY) {
+				return new Location(next / width, next % width);
+			}
+		}
+		// check whether current location is free
+		if(store.getType(location.getRow() * width + location.getCol()) == EMPTY) {
+			return location;
+		} 
+		else {
+			return null;
+		}
+	}
+	
+	
+	/*
+	 * The copy shares the signal of this field, which is only
+	 * written when the mothership lands, and starts with no changes.
+	 * @return A copy of this field
+	 */
+	public Field cloneField()
+	{
+		Field clone = new Field(this.getDepth(), this.getWidth(), this.random,
+		                        this.store.copy(), this.signal, this.flow, this.dirty);
+		clone.evaporations = this.evaporations;
+		clone.crumbCells = crumbCells == null ? null : new IntSet(crumbCells);
+		System.arraycopy(this.typeCounts, 0, clone.typeCounts, 0, typeCounts.length);
+		return clone;	
+	}
+	
+	/**
+	 * Bring another buffer of this field up to date by copying only the
+	 * cells changed since the last copy, then forget those changes.
+	 * The other buffer must have held the same state as this one when
+	 * the changes were last forgotten.
+	 * @param other The buffer to update.
+	 */
+	public void copyChangesTo(Field other)
+	{
+		for(int i = 0; i < changedCount; i++) {
+			int index = changed[i];
+			byte type = store.getType(index);
+			other.typeCounts[other.store.getType(index)]--;
+			other.typeCounts[type]++;
+			other.store.setCell(index, type, store.getEntity(index));
+			other.store.setCrumbs(index, store.getCrumbs(index), store.getCrumbStamp(index));
+			other.noteCrumbs(index, getCrumbQuantity(index));
+		}
+		forgetChanges();
+	}
+	
+	/**
+	 * Forget the cells changed so far, e.g. after taking a full copy.
+	 */
+	public void forgetChanges()
+	{
+		changedCount = 0;
+	}
+	
+	/**
+	 * Remember that a cell has changed since the last copy.
+	 * @param index The packed index of the cell.
+	 */
+	private void markChanged(int index)
+	{
+		if(changedCount == changed.length) {
+			changed = Arrays.copyOf(changed, changedCount * 2);
+		}
+		changed[changedCount++] = index;
+		dirty.mark(index);
+	}
+	
+	/**
+	 * Record that the way a cell looks has changed although its contents
+	 * have not, e.g. when the vehicle in it picks up a sample.
+	 * @param index The packed index of the cell.
+	 */
+	public void touch(int index)
+	{
+		dirty.mark(index);
+	}
+	
+	/**
+	 * Start recording the cells that change, for a view to redraw only
+	 * those. The record covers this field and all its copies, and at
+	 * first marks every cell.
+	 * @return The cells changed since the view last cleared the record.
+	 */
+	public DirtyCells watchChanges()
+	{
+		dirty.watch();
+		return dirty;
+	}
+
+	/**
+	 * Fill a cursor with the cells around the given one, in an order
+	 * picked with the given stream of random numbers, and with a summary
+	 * of what they hold: whether the mothership is among them, the first
+	 * rock, the free cell with the most crumbs, the free cells, and the
+	 * first free cells up and down the signal's gradient. Each cell is
+	 * read once. The field is only read, so several threads may survey
+	 * with their own cursors at once.
+	 * @param row The row of the centre cell.
+	 * @param col The column of the centre cell.
+	 * @param cursor The cursor to fill.
+	 * @param rand The stream of random numbers picking the order.
+	 * @return The filled cursor.
+	 */
+	public Neighbourhood survey(int row, int col, Neighbourhood cursor, SplittableRandom rand)
+	{
+		return survey(row, col, cursor, rand.nextInt(ORDERS));
+	}
+	
+	/**
+	 * Survey the cells around the given one, in one of the field's fixed
+	 * visiting orders.
+	 * @param row The row of the centre cell.
+	 * @param col The column of the centre cell.
+	 * @param cursor The cursor to fill.
+	 * @param order The number of the order, from 0 to ORDERS - 1.
+	 * @return The filled cursor.
+	 */
+	public Neighbourhood survey(int row, int col, Neighbourhood cursor, int order)
+	{
+		int here = signal.getStrength(row * width + col);
+		boolean nextToMothership = false;
+		int rock = -1, mostCrumbs = -1, upGradient = -1, downGradient = -1;
+		int freeCount = 0;
+		int most = 0;
+		int base = order * Neighbourhood.SIZE;
+		for(int i = 0; i < Neighbourhood.SIZE; i++) {
+			int offset = orders[base + i];
+			int cell = wrapRow[row + offset / 3] * width + wrapCol[col + offset % 3];
+			cursor.cells[i] = cell;
+			byte type = store.getType(cell);
+			if(type == EMPTY) {
+				cursor.free[freeCount++] = cell;
+				int crumbs = getCrumbQuantity(cell);
+				if(crumbs > most) {
+					most = crumbs;
+					mostCrumbs = cell;
+				}
+				int strength = signal.getStrength(cell);
+				if(strength > here) {
+					if(upGradient < 0) {
+						upGradient = cell;
+					}
+				}
+				else if(strength < here && downGradient < 0) {
+					downGradient = cell;
+				}
+			}
+			else if(type == ROCK) {
+				if(rock < 0) {
+					rock = cell;
+				}
+			}
+			else if(type == MOTHERSHIP) {
+				nextToMothership = true;
+			}
+		}
+		cursor.nextToMothership = nextToMothership;
+		cursor.rock = rock;
+		cursor.mostCrumbs = mostCrumbs;
+		cursor.upGradient = upGradient;
+		cursor.downGradient = downGradient;
+		cursor.freeCount = freeCount;
+		return cursor;
+	}
+	
+	/**
+	 * Fill a cursor with the cells around the given one, in random order.
+	 * The neighbourhood includes the cell itself and its eight neighbours,
+	 * all of which lie within the grid.
+	 * The topology of the grid is torus shaped. 
+	 * This means that it is like a chessboard but when a piece goes beyond the 
+	 * bottom row it reappears from the first row and vice versa. 
+	 * Similarly when it goes beyond the rightmost column it reappears from the 
+	 * leftmost column and vice versa.
+	 * The order is one of a fixed table of random permutations, picked with
+	 * the field's random numbers, so no allocation or shuffling is needed.
+	 * @param row The row of the centre cell.
+	 * @param col The column of the centre cell.
+	 * @param cursor The cursor to fill.
+	 * @return The filled cursor.
+	 */
+	public Neighbourhood neighbourhood(int row, int col, Neighbourhood cursor)
+	{
+		return neighbourhood(row, col, cursor, random);
+	}
+	
+	/**
+	 * Fill a cursor with the cells around the given one, in an order
+	 * picked with the given stream of random numbers. The field is only
+	 * read, so several threads may fill their own cursors at once.
+	 * @param row The row of the centre cell.
+	 * @param col The column of the centre cell.
+	 * @param cursor The cursor to fill.
+	 * @param rand The stream of random numbers picking the order.
+	 * @return The filled cursor.
+	 */
+	public Neighbourhood neighbourhood(int row, int col, Neighbourhood cursor, SplittableRandom rand)
+	{
+		int base = rand.nextInt(ORDERS) * Neighbourhood.SIZE;
+		for(int i = 0; i < Neighbourhood.SIZE; i++) {
+			int offset = orders[base + i];
+			int nextRow = wrapRow[row + offset / 3];
+			int nextCol = wrapCol[col + offset % 3];
+			cursor.cells[i] = nextRow * width + nextCol;
+		}
+		return cursor;
+	}
+	
+	/**
+	 * Detect if specified class is adjacent
+	 * @param loc The location from which to generate adjacencies.
+         * @param c The class of the object to check for
+	 * @return boolean.
+	 */
+	public <T> boolean isNeighbourTo(Location loc, Class<T> c)
+	{
+		byte type = cellTypeOf(c);
+		Neighbourhood adjacent = neighbourhood(loc.getRow(), loc.getCol(), scratch);
+		for(int i = 0; i < adjacent.size(); i++) {
+			if(store.getType(adjacent.get(i)) == type)
+				return true;
+		}
+		return false;
+	}
+	
+	public <T> Location getNeighbour(Location loc, Class<T> c)
+	{
+		byte type = cellTypeOf(c);
+		Neighbourhood adjacent = neighbourhood(loc.getRow(), loc.getCol(), scratch);
+		for(int i = 0; i < adjacent.size(); i++) {
+			int next = adjacent.get(i);
+			if(store.getType(next) == type)
+				return new Location(next / width, next % width);
+		}
+		return null;
+	}
+	
+	/**
+	 * Evaporate one crumb from every cell. Only the evaporation clock is
+	 * advanced; each cell works out its crumbs when they are next read,
+	 * so this takes the same time however large the field is.
+	 * Both buffers of a field must evaporate together.
+	 * While a view watches, the cells holding crumbs are marked as
+	 * changed, and those left with none are forgotten.
+	 */
+	public void reduceCrumbs()
+	{
+		if(dirty.isWatched()) {
+			if(crumbCells == null) {
+				crumbCells = new IntSet();
+				for(int index = 0; index < depth * width; index++) {
+					noteCrumbs(index, getCrumbQuantity(index));
+				}
+			}
+			int[] emptied = new int[16];
+			int emptiedCount = 0;
+			for(int slot = 0; slot < crumbCells.slots(); slot++) {
+				int index = crumbCells.member(slot);
+				if(index != IntSet.FREE) {
+					dirty.mark(index);
+					if(getCrumbQuantity(index) <= 1) {
+						if(emptiedCount == emptied.length) {
+							emptied = Arrays.copyOf(emptied, emptiedCount * 2);
+						}
+						emptied[emptiedCount++] = index;
+					}
+				}
+			}
+			for(int i = 0; i < emptiedCount; i++) {
+				crumbCells.remove(emptied[i]);
+			}
+		}
+		evaporations++;
+	}
+	
+	/**
+	 * Keep the set of cells holding crumbs up to date, if it is kept.
+	 * @param index The packed index of a cell.
+	 * @param quantity The crumbs it now holds.
+	 */
+	private void noteCrumbs(int index, int quantity)
+	{
+		if(crumbCells != null) {
+			if(quantity > 0) {
+				crumbCells.add(index);
+			}
+			else {
+				crumbCells.remove(index);
+			}
+		}
+	}
+	
+
+	/**
+	 * @return The depth of the field.
+	 */
+	public int getDepth()
+	{
+		return depth;
+	}
+	
+	/**
+	 * @return The width of the field.
+	 */
+	public int getWidth()
+	{
+		return width;
+	}
+	
+	/**
+	 * Return the number of crumbs at the given location, if any.
+         * @param l The location to check
+	 * @return The number of crumbs at the given location.
+	 */
+    public int getCrumbQuantityAt(Location l)
+    {
+    	return getCrumbQuantity(l.getRow() * width + l.getCol());
+    }
+    
+    /**
+     * @param index The packed index (row * width + col) of a cell.
+     * @return The number of crumbs in that cell.
+     */
+    public int getCrumbQuantity(int index)
+    {
+    	int quantity = store.getCrumbs(index) - (evaporations - store.getCrumbStamp(index));
+    	return quantity > 0 ? quantity : 0;
+    }
+    
+    /**
+     * Store the number of crumbs in a cell as of the current evaporation.
+     * @param index The packed index of the cell.
+     * @param quantity The number of crumbs.
+     */
+    public void setCrumbQuantity(int index, int quantity)
+    {
+    	store.setCrumbs(index, quantity, evaporations);
+    	noteCrumbs(index, quantity);
+    	markChanged(index);
+    }
+    
+    public void pickUpACrumb(Location l)
+    {
+    	pickUpACrumb(l.getRow() * width + l.getCol());
+    }
+    
+    public void pickUpACrumb(int index)
+    {
+    	int quantity = getCrumbQuantity(index);
+    	if(quantity>0){
+    		setCrumbQuantity(index, quantity - 1);
+    	}
+    }
+    
+    public void dropCrumbs(Location l, int q)
+    {
+    	dropCrumbs(l.getRow() * width + l.getCol(), q);
+    }
+    
+    public void dropCrumbs(int index, int q)
+    {
+    	int quantity = getCrumbQuantity(index);
+    	if(quantity<10-q){
+    		setCrumbQuantity(index, quantity + q);
+    	}
+    }
+}
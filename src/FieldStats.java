@@ -1,131 +1,60 @@
-
-import java.util.HashMap;
-import java.util.Iterator;
-
-/**
- * This class collects and provides some statistical data on the state 
- * of a field. It is flexible: it will create and maintain a counter 
- * for any class of object that is found within the field.
- * 
- * @author David J. Barnes and Michael Kolling
- * @version 2002-04-23
- * @version Ian T. Nabney
- * @version 01-02-2005
- */
-public class FieldStats
-{
-    // Counters for each type of entity (host, artist, etc.) in the simulation.
-    private HashMap<Class, Counter> counters;
-    // Whether the counters are currently up to date.
-    private boolean countsValid;
-
-    /**
-     * Construct a field-statistics object.
-     */
-    public FieldStats()
-    {
-        // Set up a collection for counters for each type of entity that
-        // we might find
-        counters = new HashMap<Class, Counter>();
-        countsValid = true;
-    }
-
-    /**
-     * @return A string describing what types of entities are in the field.
-     */
-    public String getPopulationDetails(Field field)
-    {
-
-        StringBuilder buffer = new StringBuilder();
-        if(!countsValid) {
-            generateCounts(field);
-        }
-        Iterator<Class> keys = counters.keySet().iterator();
-        while(keys.hasNext()) {
-            Counter info = counters.get(keys.next());
-            buffer.append(info.getName());
-            buffer.append(": ");
-            buffer.append(info.getCount());
-            buffer.append(' ');
-        }
-        return buffer.toString();
-    }
-    
-    /**
-     * Invalidate the current set of statistics; reset all 
-     * counts to zero.
-     */
-    public void reset()
-    {
-        countsValid = false;
-        Iterator<Class> keys = counters.keySet().iterator();
-        while(keys.hasNext()) {
-            Counter cnt = counters.get(keys.next());
-            cnt.reset();
-        }
-    }
-
-    /**
-     * Increment the count for one class of animal.
-     */
-    public void incrementCount(Class animalClass)
-    {
-        Counter cnt = (Counter) counters.get(animalClass);
-        if(cnt == null) {
-            // we do not have a counter for this species yet - create one
-            cnt = new Counter(animalClass.getName());
-            counters.put(animalClass, cnt);
-        }
-        cnt.increment();
-    }
-
-    /**
-     * Indicate that an entity count has been completed.
-     */
-    public void countFinished()
-    {
-        countsValid = true;
-    }
-
-    /**
-     * Determine whether the simulation is still viable.
-     * I.e., should it continue to run.
-     * @return true If there is more than one types of Actor present.
-     */
-    public boolean isViable(Field field)
-    {
-        // How many counts are non-zero.
-        int nonZero = 0;
-        if(!countsValid) {
-            generateCounts(field);
-        }
-        Iterator<Class> keys = counters.keySet().iterator();
-        while(keys.hasNext()) {
-            Counter info = counters.get(keys.next());
-            if(info.getCount() > 0) {
-                nonZero++;
-            }
-        }
-        return nonZero > 1;
-    }
-    
-    /**
-     * Generate counts of the number of types of entities.
-     * These are not kept up to date as entities
-     * are placed in the field, but only when a request
-     * is made for the information.
-     */
-    private void generateCounts(Field field)
-    {
-        reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getObjectAt(row, col);
-                if(animal != null) {
-                    incrementCount(animal.getClass());
-                }
-            }
-        }
-        countsValid = true;
-    }
-}
\ No newline at end of file
+/**
+ * This class provides some statistical data on the state of a field.
+ * The field keeps a count of the cells of each kind up to date as
+ * entities are placed and removed, so no statistic needs a pass over
+ * the grid.
+ * 
+ * @author David J. Barnes and Michael Kolling
+ * @version 2002-04-23
+ * @version Ian T. Nabney
+ * @version 01-02-2005
+ */
+public class FieldStats
+{
+    // The kinds of entity counted, and their names, in the order they are reported.
+    private static final byte[] TYPES = {Field.ROCK, Field.OBSTACLE, Field.VEHICLE, Field.MOTHERSHIP};
+    private static final String[] NAMES = {Rock.class.getName(), Obstacle.class.getName(),
+                                           Vehicle.class.getName(), Mothership.class.getName()};
+
+    /**
+     * Construct a field-statistics object.
+     */
+    public FieldStats()
+    {
+    }
+
+    /**
+     * @return A string describing what types of entities are in the field.
+     */
+    public String getPopulationDetails(Field field)
+    {
+        StringBuilder buffer = new StringBuilder();
+        for(int i = 0; i < TYPES.length; i++) {
+            int count = field.getCount(TYPES[i]);
+            if(count > 0) {
+                buffer.append(NAMES[i]);
+                buffer.append(": ");
+                buffer.append(count);
+                buffer.append(' ');
+            }
+        }
+        return buffer.toString();
+    }
+
+    /**
+     * Determine whether the simulation is still viable.
+     * I.e., should it continue to run.
+     * @return true If there is more than one types of Actor present.
+     */
+    public boolean isViable(Field field)
+    {
+        // How many counts are non-zero.
+        int nonZero = 0;
+        for(int i = 0; i < TYPES.length; i++) {
+            if(field.getCount(TYPES[i]) > 0) {
+                nonZero++;
+            }
+        }
+        return nonZero > 1;
+    }
+}
@@ -0,0 +1,422 @@
+import java.util.Arrays;
+
+/**
+ * The vehicles of a simulation, kept in arrays of primitives indexed by
+ * the vehicles' numbers rather than as objects: the packed cell of each
+ * vehicle, whether it carries a sample, and the plan it made this step.
+ * Moving a vehicle writes one int, so a run allocates nothing per move,
+ * and stepping reads the arrays in order. Each vehicle costs a few bytes
+ * here, and a small Vehicle handle for code that wants an object, e.g.
+ * to place in the field; the handle holds no state of its own.
+ *
+ * The behaviours the vehicles follow are described in Vehicle, and each
+ * is planned by a BehaviourStrategy. Plans are made against a field that
+ * is only read, so that all vehicles can plan in parallel, each thread
+ * with its own Planner, before the plans are applied one at a time in
+ * order of the vehicles' numbers.
+ */
+final class Fleet
+{
+    // The bits of a plan. A vehicle delivers its sample, picks up the rock
+    // or the crumb in its target cell, and drops 0 to 3 crumbs where it
+    // was, perhaps only if it moved.
+    static final byte DELIVER = 1;
+    static final byte ROCK = 2;
+    static final byte CRUMB = 4;
+    static final byte DROP_ONLY_IF_MOVED = 8;
+    private static final int DROP_SHIFT = 4;
+    // The kinds of strategy with a loop of their own in planAll; any
+    // other strategy is CUSTOM.
+    private static final int CUSTOM = 0;
+    private static final int SIMPLE = 1;
+    private static final int COLLABORATIVE = 2;
+    private static final int OPTIMISED = 3;
+    // The vehicles are sorted by cell again after this many steps.
+    private static final int SORT_PERIOD = 64;
+
+    private final BehaviourStrategy strategy;
+    // The kind of the strategy, one of the constants above.
+    private final int kind;
+    private final RandomStreams streams;
+    private final int width;
+    private int size;
+    // The packed cell (row * width + col) of each vehicle, and whether it
+    // carries a sample.
+    private int[] cells;
+    private boolean[] carrying;
+    // The plan of each vehicle for the current step: the bits above, the
+    // cell of the rock or crumb to pick up, and the cell to move to, or -1.
+    private byte[] plans;
+    private int[] targets;
+    private int[] destinations;
+    // The handle of each vehicle, made once.
+    private Vehicle[] handles;
+    // The vehicles' numbers roughly in order of their cells, and the step
+    // at which they were last sorted.
+    private int[] byCell;
+    private int sortedAt;
+
+    /**
+     * @param strategy The behaviour strategy every vehicle follows.
+     * @param streams The streams of random numbers of the simulation.
+     * @param width The width of the field.
+     */
+    Fleet(BehaviourStrategy strategy, RandomStreams streams, int width)
+    {
+        this.strategy = strategy;
+        if(strategy instanceof SimpleBehaviour) {
+            kind = SIMPLE;
+        }
+        else if(strategy instanceof CollaborativeBehaviour) {
+            kind = COLLABORATIVE;
+        }
+        else if(strategy instanceof OptimisedBehaviour) {
+            kind = OPTIMISED;
+        }
+        else {
+            kind = CUSTOM;
+        }
+        this.streams = streams;
+        this.width = width;
+        cells = new int[16];
+        carrying = new boolean[16];
+        plans = new byte[16];
+        targets = new int[16];
+        destinations = new int[16];
+        handles = new Vehicle[16];
+        byCell = new int[0];
+        sortedAt = -SORT_PERIOD;
+    }
+
+    /**
+     * Add a vehicle. Its number is the number of vehicles before it.
+     * @param cell The packed index of the vehicle's cell.
+     * @param carryingSample Whether it carries a sample.
+     * @return The vehicle's handle, to place in the field.
+     */
+    public Vehicle add(int cell, boolean carryingSample)
+    {
+        if(size == cells.length) {
+            int capacity = size * 2;
+            cells = Arrays.copyOf(cells, capacity);
+            carrying = Arrays.copyOf(carrying, capacity);
+            plans = Arrays.copyOf(plans, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            destinations = Arrays.copyOf(destinations, capacity);
+            handles = Arrays.copyOf(handles, capacity);
+        }
+        cells[size] = cell;
+        carrying[size] = carryingSample;
+        handles[size] = new Vehicle(this, size);
+        sortedAt = -SORT_PERIOD;
+        return handles[size++];
+    }
+
+    /**
+     * @return The number of vehicles.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param v The number of a vehicle.
+     * @return Its handle.
+     */
+    public Vehicle get(int v)
+    {
+        return handles[v];
+    }
+
+    /**
+     * @param v The number of a vehicle.
+     * @return The packed index of its cell.
+     */
+    public int getCell(int v)
+    {
+        return cells[v];
+    }
+
+    /**
+     * Record that a vehicle is in another cell; the field is not changed.
+     * @param v The number of a vehicle.
+     * @param cell The packed index of its new cell.
+     */
+    public void setCell(int v, int cell)
+    {
+        cells[v] = cell;
+    }
+
+    /**
+     * @return The width of the field the cells are packed for.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * @param v The number of a vehicle.
+     * @return Whether it carries a sample.
+     */
+    public boolean isCarrying(int v)
+    {
+        return carrying[v];
+    }
+
+    /**
+     * @param v The number of a vehicle.
+     * @param carryingSample Whether it carries a sample.
+     */
+    public void setCarrying(int v, boolean carryingSample)
+    {
+        carrying[v] = carryingSample;
+    }
+
+    /**
+     * The vehicles' numbers in order of their cells, so that planning
+     * them in this order reads the field from one end to the other. As
+     * vehicles move only a cell per step, they are sorted again only now
+     * and then, and the order is only roughly that of their cells.
+     * @param step The current step.
+     * @return The numbers of all vehicles; the array is reused.
+     */
+    public int[] inCellOrder(int step)
+    {
+        if(byCell.length != size || step - sortedAt >= SORT_PERIOD) {
+            long[] keys = new long[size];
+            for(int v = 0; v < size; v++) {
+                keys[v] = ((long) cells[v] << 32) | v;
+            }
+            Arrays.sort(keys);
+            if(byCell.length != size) {
+                byCell = new int[size];
+            }
+            for(int i = 0; i < size; i++) {
+                byCell[i] = (int) keys[i];
+            }
+            sortedAt = step;
+        }
+        return byCell;
+    }
+
+    /**
+     * Decide what some vehicles do this step without changing the field,
+     * so that many vehicles can plan against the same field at once. Each
+     * vehicle's neighbourhood is surveyed once, in one pass, and every rule
+     * of the behaviour reads the survey. The plans are carried out by apply.
+     *
+     * The loop is written out for each built-in strategy, so that its call
+     * is bound to one class and inlined however many strategies the JVM has
+     * seen; other strategies share the last loop, which is as fast while a
+     * run uses only one or two of them.
+     * @param order The numbers of the vehicles.
+     * @param from The position in order of the first vehicle to plan.
+     * @param to The position after that of the last.
+     * @param f Field the vehicles are operating in.
+     * @param step The step being planned.
+     * @param planner The planner of the calling thread.
+     */
+    public void planAll(int[] order, int from, int to, Field f, int step, Planner planner)
+    {
+        switch (kind) {
+        case SIMPLE: {
+            SimpleBehaviour simple = (SimpleBehaviour) strategy;
+            for(int i = from; i < to; i++) {
+                int v = order[i];
+                simple.plan(this, v, f, survey(v, f, step, planner), planner);
+            }
+            break;
+        }
+        case COLLABORATIVE: {
+            CollaborativeBehaviour collaborative = (CollaborativeBehaviour) strategy;
+            for(int i = from; i < to; i++) {
+                int v = order[i];
+                collaborative.plan(this, v, f, survey(v, f, step, planner), planner);
+            }
+            break;
+        }
+        case OPTIMISED: {
+            OptimisedBehaviour optimised = (OptimisedBehaviour) strategy;
+            for(int i = from; i < to; i++) {
+                int v = order[i];
+                optimised.plan(this, v, f, survey(v, f, step, planner), planner);
+            }
+            break;
+        }
+        default:
+            for(int i = from; i < to; i++) {
+                int v = order[i];
+                strategy.plan(this, v, f, survey(v, f, step, planner), planner);
+            }
+        }
+    }
+
+    /**
+     * Seed the planner for a vehicle and survey its neighbourhood.
+     */
+    private Neighbourhood survey(int v, Field f, int step, Planner planner)
+    {
+        planner.seed = streams.vehicleSeed(v, step);
+        int cell = cells[v];
+        return f.survey(cell / width, cell % width, planner.adjacent,
+                        planner.nextInt(Field.ORDERS));
+    }
+
+    /**
+     * Record the plan of a vehicle for this step; for strategies to call.
+     * @param v The number of the vehicle.
+     * @param plan DELIVER, ROCK and CRUMB as wanted, and drop(crumbs),
+     *        perhaps with DROP_ONLY_IF_MOVED.
+     * @param target The cell of the rock or crumb to pick up, or -1.
+     * @param destination The cell to move to, or -1 to stay.
+     */
+    public void setPlan(int v, byte plan, int target, int destination)
+    {
+        plans[v] = plan;
+        targets[v] = target;
+        destinations[v] = destination;
+    }
+
+    /**
+     * @param crumbs The number of crumbs to drop, from 0 to 3.
+     * @return The bits of a plan to drop them where the vehicle was.
+     */
+    static byte drop(int crumbs)
+    {
+        if(crumbs < 0 || crumbs > 3) {
+            throw new IllegalArgumentException("Cannot drop " + crumbs + " crumbs");
+        }
+        return (byte) (crumbs << DROP_SHIFT);
+    }
+
+    /**
+     * Finds a free adjacent cell with a stronger signal than the vehicle's
+     * own, i.e. a step up the gradient. The field's table of the way home
+     * is tried first; only if that cell is taken is the survey used.
+     * @return The cell to move to, or -1 if there is none.
+     */
+    public int upGradient(int v, Field f, Neighbourhood n)
+    {
+        int hop = f.nextHop(cells[v]);
+        if(hop >= 0 && f.getCellType(hop) == Field.EMPTY) {
+            return hop;
+        }
+        return n.upGradient;
+    }
+
+    /**
+     * @return A randomly chosen free adjacent cell, or -1 if none is free.
+     */
+    static int randomAvailable(Neighbourhood n, Planner planner)
+    {
+        if(n.freeCount == 0) {
+            return -1;
+        }
+        return n.free[planner.nextInt(n.freeCount)];
+    }
+
+    /**
+     * @return The first free adjacent cell found, or -1 if none is free.
+     */
+    static int firstAvailable(Neighbourhood n)
+    {
+        return n.freeCount > 0 ? n.free[0] : -1;
+    }
+
+    /**
+     * Carry out the action a vehicle chose in its last plan. Parts of the
+     * plan that are no longer possible, because another vehicle has since
+     * taken the destination or the rock, are skipped.
+     * @param v The number of the vehicle.
+     * @param f Field the vehicle is operating in.
+     * @param m The vehicles' mothership.
+     * @param log Log to record what the vehicle does in, or null.
+     */
+    public void apply(int v, Field f, Mothership m, EventLog log)
+    {
+        int origin = cells[v];
+        int plan = plans[v];
+        int target = targets[v];
+        boolean carried = carrying[v];
+        if((plan & DELIVER) != 0) {
+            m.incrementRockCount();
+            carrying[v] = false;
+            if(log != null) {
+                log.deliver(v);
+            }
+        }
+        if((plan & ROCK) != 0 && f.getCellType(target) == Field.ROCK) {
+            f.place(null, target);
+            carrying[v] = true;
+            if(log != null) {
+                log.pickUpRock(v, origin, target);
+            }
+        }
+        if((plan & CRUMB) != 0) {
+            f.pickUpACrumb(target);
+            if(log != null) {
+                log.pickUpCrumb(v, origin, target);
+            }
+        }
+        if((plan & DELIVER) != 0 || carrying[v] != carried) {
+            f.touch(origin);
+        }
+        int destination = destinations[v];
+        boolean moved = destination >= 0 && f.getCellType(destination) == Field.EMPTY;
+        if(moved) {
+            f.place(null, origin);
+            f.place(handles[v], destination);
+            cells[v] = destination;
+            if(log != null) {
+                log.move(v, origin, destination);
+            }
+        }
+        int crumbs = plan >> DROP_SHIFT;
+        if(crumbs > 0 && (moved || (plan & DROP_ONLY_IF_MOVED) == 0)) {
+            f.dropCrumbs(origin, crumbs);
+            if(log != null) {
+                log.dropCrumbs(v, moved ? destination : origin, origin, crumbs);
+            }
+        }
+    }
+
+    /**
+     * What one thread needs to plan: a cursor for the neighbourhood and
+     * the state of the current vehicle's random numbers. The numbers are
+     * exactly those SplittableRandom would give from the same seed, drawn
+     * without making a new generator for every vehicle in every step.
+     */
+    static final class Planner
+    {
+        private static final long GAMMA = 0x9e3779b97f4a7c15L;
+
+        private final Neighbourhood adjacent = new Neighbourhood();
+        private long seed;
+
+        /**
+         * @param bound The bound on the number, which must be positive.
+         * @return A random number from 0 to bound - 1.
+         */
+        int nextInt(int bound)
+        {
+            int r = next();
+            int m = bound - 1;
+            if((bound & m) == 0) {
+                return r & m;
+            }
+            for(int u = r >>> 1; u + m - (r = u % bound) < 0; u = next() >>> 1) {
+                // reject numbers that would make some results more likely
+            }
+            return r;
+        }
+
+        private int next()
+        {
+            long z = (seed += GAMMA);
+            z = (z ^ (z >>> 33)) * 0x62a9d9ed799705f5L;
+            return (int) (((z ^ (z >>> 28)) * 0xcb24d0a5c88c35b3L) >>> 32);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+import java.util.Arrays;
+
+/**
+ * A table of the way home from every cell: the neighbour a vehicle
+ * carrying a sample should move to next. The table is derived from the
+ * signal and the obstacles, one square tile at a time when a cell in the
+ * tile is first asked about. A tile is filled in again only after a change
+ * that could affect it: a new obstacle or a cleared one makes the tiles
+ * around it stale, and any change to the signal makes every tile stale.
+ * 
+ * Filling in a tile writes to the table, so while several threads read
+ * it every tile they will ask about must already be filled in.
+ */
+class FlowField
+{
+    // The size of the square tiles filled in at once.
+    private static final int TILE_SIZE = 64;
+    // The direction of a cell from which no neighbour is nearer home.
+    private static final byte NONE = -1;
+    
+    private int depth, width;
+    // The number of tiles across the field.
+    private int tilesAcross;
+    // The direction of the next hop from each cell of each tile, as
+    // (row offset + 1) * 3 + (column offset + 1), or NONE. A tile's table
+    // is made when the tile is first filled in.
+    private byte[][] hops;
+    // Whether each tile has been filled in since it last became stale.
+    private boolean[] filled;
+    // The signal the table was derived from, and its version at the time.
+    private SignalField signal;
+    private int signalVersion;
+    
+    /**
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    FlowField(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        tilesAcross = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int tilesDown = (depth + TILE_SIZE - 1) / TILE_SIZE;
+        hops = new byte[tilesAcross * tilesDown][];
+        filled = new boolean[tilesAcross * tilesDown];
+    }
+    
+    /**
+     * Find the way home from a cell, filling in its tile if need be.
+     * @param field The field holding the obstacles and the signal.
+     * @param index The packed index of the cell.
+     * @return The packed index of the free neighbour with the strongest
+     *         signal, if it is stronger than here, otherwise -1.
+     */
+    public int nextHop(Field field, int index)
+    {
+        SignalField current = field.getSignal();
+        if(current != signal || current.getVersion() != signalVersion) {
+            signal = current;
+            signalVersion = current.getVersion();
+            Arrays.fill(filled, false);
+        }
+        int row = index / width;
+        int col = index % width;
+        int tile = (row / TILE_SIZE) * tilesAcross + col / TILE_SIZE;
+        if(!filled[tile]) {
+            fill(field, tile, row / TILE_SIZE, col / TILE_SIZE);
+            filled[tile] = true;
+        }
+        byte hop = hops[tile][(row % TILE_SIZE) * TILE_SIZE + col % TILE_SIZE];
+        if(hop == NONE) {
+            return -1;
+        }
+        return neighbour(row, col, hop / 3 - 1, hop % 3 - 1);
+    }
+    
+    /**
+     * Make the tiles around a cell stale, e.g. because an obstacle has
+     * been placed in it or removed from it.
+     * @param index The packed index of the cell.
+     */
+    public void cellChanged(int index)
+    {
+        int row = index / width;
+        int col = index % width;
+        for(int dr = -1; dr <= 1; dr++) {
+            for(int dc = -1; dc <= 1; dc++) {
+                int cell = neighbour(row, col, dr, dc);
+                filled[(cell / width / TILE_SIZE) * tilesAcross + (cell % width) / TILE_SIZE] = false;
+            }
+        }
+    }
+    
+    /**
+     * Work out the next hop from every cell of a tile.
+     * @param field The field holding the obstacles and the signal.
+     * @param tile The number of the tile.
+     * @param tileRow The row of the tile among the tiles.
+     * @param tileCol The column of the tile among the tiles.
+     */
+    private void fill(Field field, int tile, int tileRow, int tileCol)
+    {
+        if(hops[tile] == null) {
+            hops[tile] = new byte[TILE_SIZE * TILE_SIZE];
+        }
+        int bottom = Math.min((tileRow + 1) * TILE_SIZE, depth);
+        int right = Math.min((tileCol + 1) * TILE_SIZE, width);
+        for(int row = tileRow * TILE_SIZE; row < bottom; row++) {
+            for(int col = tileCol * TILE_SIZE; col < right; col++) {
+                int best = signal.getStrength(row * width + col);
+                byte hop = NONE;
+                for(int dr = -1; dr <= 1; dr++) {
+                    for(int dc = -1; dc <= 1; dc++) {
+                        int cell = neighbour(row, col, dr, dc);
+                        if(field.getCellType(cell) != Field.OBSTACLE && signal.getStrength(cell) > best) {
+                            best = signal.getStrength(cell);
+                            hop = (byte) ((dr + 1) * 3 + dc + 1);
+                        }
+                    }
+                }
+                hops[tile][(row % TILE_SIZE) * TILE_SIZE + col % TILE_SIZE] = hop;
+            }
+        }
+    }
+    
+    /**
+     * @return The packed index of the cell at the given offset from a
+     *         cell, wrapped around the torus.
+     */
+    private int neighbour(int row, int col, int dr, int dc)
+    {
+        int r = row + dr;
+        int c = col + dc;
+        if(r < 0) {
+            r += depth;
+        }
+        else if(r >= depth) {
+            r -= depth;
+        }
+        if(c < 0) {
+            c += width;
+        }
+        else if(c >= width) {
+            c -= width;
+        }
+        return r * width + c;
+    }
+}
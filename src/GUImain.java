@@ -28,12 +28,15 @@ public class GUImain {
 	private LabelledTextArea rockLocations;
 	private LabelledTextArea rockClusterStd;
 	private LabelledCheckBox showTrails;
+	private LabelledTextArea stepsPerSecond;
 
 	JButton setUpButton;
 	JButton setUpButtonIndividual;
 	JButton setUpButtonCoolaborative;
 	JButton stepOnceButton;
 	JButton runLongButton;
+	JButton pauseButton;
+	JButton stopButton;
 	JButton resetButton;
 	JButton quitButton;
 
@@ -44,8 +47,11 @@ public class GUImain {
 	private String defRockClusterNum = "30";	// default value for the number of clusters
 	private String defRockLocations = "300";  // default value for number of rock locations
 	private String defRockClusterStd = "2.0"; // default value for number of rock cluster std
+	private String defStepsPerSecond = "0";	// default speed, 0 for as fast as possible
 
 	private Simulator s;
+	// Runs every task of the GUI, one at a time, off the event dispatch thread
+	private SimulationExecutor executor = new SimulationExecutor();
 
 	public static void main(String[] args) {
 		@SuppressWarnings("unused")
@@ -62,6 +68,8 @@ public class GUImain {
 		setUpButtonCoolaborative = new JButton();
 		stepOnceButton = new JButton();
 		runLongButton = new JButton();
+		pauseButton = new JButton();
+		stopButton = new JButton();
 		resetButton = new JButton();
 		quitButton = new JButton();
 
@@ -78,6 +86,7 @@ public class GUImain {
 		rockClusterNum = new LabelledTextArea("Number of Clusters: ", defRockClusterNum);
 		rockClusterStd = new LabelledTextArea("Rock Clusters Std: ", defRockClusterStd);
 		showTrails = new LabelledCheckBox("Show Crumb Trails: ", true);
+		stepsPerSecond = new LabelledTextArea("Steps/sec (0 = max): ", defStepsPerSecond);
 
 		// Step 2: set the properties of the components
 		// setUpButton.setText("Set up simulation");
@@ -95,6 +104,12 @@ public class GUImain {
 		runLongButton.setText("Run");
 		runLongButton.setToolTipText("Run simulation for the duration specified.");
 		runLongButton.setEnabled(false);
+		pauseButton.setText("Pause");
+		pauseButton.setToolTipText("Pause or resume the running simulation.");
+		pauseButton.setEnabled(false);
+		stopButton.setText("Stop");
+		stopButton.setToolTipText("Stop the running simulation.");
+		stopButton.setEnabled(false);
 		resetButton.setText("Reset");
 		resetButton.setToolTipText("Allow changing of the parameters.");
 		resetButton.setEnabled(false);
@@ -124,7 +139,7 @@ public class GUImain {
 		simParamsBox.setLayout(new GridLayout(2,2));
 		creationProbBox.setLayout(new GridLayout(3,1));
 		rockBox.setLayout(new GridLayout(3,1));
-		commandBox.setLayout(new GridLayout(7,1));
+		commandBox.setLayout(new GridLayout(9,1));
 		lowerBox.setLayout(new BorderLayout());
 		entityParamsBox.setLayout(new BorderLayout());
 
@@ -135,11 +150,14 @@ public class GUImain {
 		commandBox.add(resetButton);
 		commandBox.add(stepOnceButton);
 		commandBox.add(runLongButton);
+		commandBox.add(pauseButton);
+		commandBox.add(stopButton);
 		commandBox.add(new JLabel());
 		commandBox.add(quitButton);
 
 		simParamsBox.add(simLength);
 		simParamsBox.add(marsWidth);
+		simParamsBox.add(stepsPerSecond);
 		// simParamsBox.add(simSeed);
 		// simParamsBox.add(marsDepth);
 
@@ -187,81 +205,44 @@ public class GUImain {
 		runLongButton.addActionListener(new ActionListener() {
                         @Override
 			public void actionPerformed(ActionEvent e) {
-
-				Thread thread;
-                            thread = new Thread(new Runnable(){
-                                @Override
-                                public void run(){
-                                    runSimulation();
-                                    mainFrame.setVisible(true);
-                                }
-                            });
-				thread.start();
-				mainFrame.setVisible(false);
+				runSimulation();
+			}
+		});
+		pauseButton.addActionListener(new ActionListener() {
+                        @Override
+			public void actionPerformed(ActionEvent e) {
+				if (executor.isPaused()) {
+					setSpeed();
+					executor.resume();
+					pauseButton.setText("Pause");
+				} else {
+					executor.pause();
+					pauseButton.setText("Resume");
+				}
+			}
+		});
+		stopButton.addActionListener(new ActionListener() {
+                        @Override
+			public void actionPerformed(ActionEvent e) {
+				executor.cancel();
 			}
 		});
 		stepOnceButton.addActionListener(new ActionListener() {
                         @Override
 			public void actionPerformed(ActionEvent e) {
-
-				Thread thread;
-                            thread = new Thread(new Runnable(){
-                                @Override
-                                public void run(){
-                                    runSimulationOnce();
-                                    mainFrame.setVisible(true);
-                                }
-                            });
-				thread.start();
-				mainFrame.setVisible(false);
+				runSimulationOnce();
 			}
 		});
-		// setUpButton.addActionListener(new ActionListener() {
-    //                     @Override
-		// 	public void actionPerformed(ActionEvent e) {
-		//
-		// 		Thread thread;
-    //                         thread = new Thread(new Runnable(){
-    //                             @Override
-    //                             public void run(){
-    //                                 setUp();
-    //                                 mainFrame.setVisible(true);
-    //                             }
-    //                         });
-		// 		thread.start();
-		// 		mainFrame.setVisible(false);
-		// 	}
-		// });
 		setUpButtonIndividual.addActionListener(new ActionListener() {
                         @Override
 			public void actionPerformed(ActionEvent e) {
-
-				Thread thread;
-                            thread = new Thread(new Runnable(){
-                                @Override
-                                public void run(){
-                                    setUp(1);
-                                    mainFrame.setVisible(true);
-                                }
-                            });
-				thread.start();
-				mainFrame.setVisible(false);
+				submitSetUp(1);
 			}
 		});
 		setUpButtonCoolaborative.addActionListener(new ActionListener() {
                         @Override
 			public void actionPerformed(ActionEvent e) {
-
-				Thread thread;
-                            thread = new Thread(new Runnable(){
-                                @Override
-                                public void run(){
-                                    setUp(2);
-                                    mainFrame.setVisible(true);
-                                }
-                            });
-				thread.start();
-				mainFrame.setVisible(false);
+				submitSetUp(2);
 			}
 		});
 
@@ -306,6 +287,7 @@ public class GUImain {
 			int valRockLocations;
 			double valRockClusterStd;
 			boolean valShowTrails;
+			Behaviour valBehaviour;
 
 			if(type == 1){
 				time = (int)(Math.round(simLength.getValue()));
@@ -318,6 +300,7 @@ public class GUImain {
 				valRockLocations = (int)(Math.round(rockLocations.getValue()));
 				valRockClusterStd = rockClusterStd.getValue();
 				valShowTrails = false;
+				valBehaviour = Behaviour.SIMPLE;
 			} else if(type == 2){
 				time = (int)(Math.round(simLength.getValue()));
 				valSimSeed = (int)(Math.round(simSeed.getValue()));
@@ -329,6 +312,7 @@ public class GUImain {
 				valRockLocations = (int)(Math.round(rockLocations.getValue()))*2;
 				valRockClusterStd = rockClusterStd.getValue();
 				valShowTrails = true;
+				valBehaviour = Behaviour.COLLABORATIVE;
 			} else {
 				// Get the values inserted by the user
 				time = (int)(Math.round(simLength.getValue()));
@@ -341,26 +325,28 @@ public class GUImain {
 				valRockLocations = (int)(Math.round(rockLocations.getValue()));
 				valRockClusterStd = rockClusterStd.getValue();
 				valShowTrails = showTrails.getValue();
+				valBehaviour = ModelConstants.BEHAVIOUR;
 			}
 
 
 
-			// Set the values in the ModelConstants class
-			ModelConstants.LENGTH = time;
-			ModelConstants.RANDOM_SEED = valSimSeed;
-			ModelConstants.DEFAULT_WIDTH = valMarsWidth;
-			ModelConstants.DEFAULT_DEPTH = valMarsDepth;
-			ModelConstants.OBSTACLE_CREATION_PROBABILITY = valObstacleCreationProb;
-			ModelConstants.VEHICLE_CREATION_PROBABILITY = valVehicleCreationProb;
-			ModelConstants.ROCK_CLUSTERS = valRockClusters;
-	    ModelConstants.ROCK_CLUSTER_STD = valRockClusterStd;
-	    ModelConstants.ROCK_LOCATIONS = valRockLocations;
-	    ModelConstants.SHOW_CRUMBS = valShowTrails;
-
-	    ModelConstants.setRandom();
+			// Collect the values in the simulation's configuration
+			SimulationConfig config = new SimulationConfig.Builder()
+					.length(time)
+					.seed(valSimSeed)
+					.width(valMarsWidth)
+					.depth(valMarsDepth)
+					.obstacleProbability(valObstacleCreationProb)
+					.vehicleProbability(valVehicleCreationProb)
+					.rockClusters(valRockClusters)
+					.rockClusterStd(valRockClusterStd)
+					.rockLocations(valRockLocations)
+					.showCrumbs(valShowTrails)
+					.behaviour(valBehaviour)
+					.build();
 
 	    //set up simulator
-	    this.s = new Simulator();
+	    this.s = new Simulator(config);
 
 	    //Enable run buttons
 			setUpButtonIndividual.setEnabled(false);
@@ -377,34 +363,101 @@ public class GUImain {
 		}
 	}
 
-	private void runSimulation() {
-		try{
-
-			// Run the simulation
-			for (int i = 0; i < ModelConstants.LENGTH; i++) {
-				s.simulateOneStep();
+	/**
+	 * Sets up a simulation on the executor, unless it is busy
+	 */
+	private void submitSetUp(final int type) {
+		executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				setUp(type);
 			}
-			runLongButton.setText("Continue running");
-			runLongButton.setToolTipText("Continue running simulation for the duration specified.");
+		}, null);
+	}
+
+	/**
+	 * Runs the simulation for the duration specified on the executor,
+	 * leaving the buttons to pause and stop it enabled meanwhile
+	 */
+	private void runSimulation() {
+		if (!setSpeed()) {
+			return;
 		}
-		catch (Exception e) {
-			JOptionPane.showMessageDialog(mainFrame,
-					"Problem running simulation." +
-					e.getMessage());
+		boolean accepted = executor.run(s, s.getConfig().getLength(), new SimulationExecutor.Listener() {
+			@Override
+			public void finished(final RuntimeException failure) {
+				SwingUtilities.invokeLater(new Runnable() {
+					@Override
+					public void run() {
+						setRunning(false);
+						runLongButton.setText("Continue running");
+						runLongButton.setToolTipText("Continue running simulation for the duration specified.");
+						if (failure != null) {
+							JOptionPane.showMessageDialog(mainFrame,
+									"Problem running simulation." +
+									failure.getMessage());
+						}
+					}
+				});
+			}
+		});
+		if (accepted) {
+			setRunning(true);
 		}
 	}
 
 	private void runSimulationOnce() {
-		try{
-			s.simulateOneStep();
+		executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				s.simulateOneStep();
+			}
+		}, new SimulationExecutor.Listener() {
+			@Override
+			public void finished(final RuntimeException failure) {
+				if (failure != null) {
+					SwingUtilities.invokeLater(new Runnable() {
+						@Override
+						public void run() {
+							JOptionPane.showMessageDialog(mainFrame,
+									"Problem running simulation." +
+									failure.getMessage());
+						}
+					});
+				}
+			}
+		});
+	}
+
+	/**
+	 * Passes the speed entered to the executor
+	 * @return Whether the speed entered is valid
+	 */
+	private boolean setSpeed() {
+		try {
+			executor.setStepsPerSecond(stepsPerSecond.getValue());
+			return true;
 		}
-		catch (Exception e) {
+		catch (IllegalArgumentException e) {
 			JOptionPane.showMessageDialog(mainFrame,
-					"Problem running simulation." +
+					"Invalid number of steps per second. " +
 					e.getMessage());
+			return false;
 		}
 	}
 
+	/**
+	 * Enables the buttons that suit a run going or not
+	 */
+	private void setRunning(boolean running) {
+		stepOnceButton.setEnabled(!running);
+		runLongButton.setEnabled(!running);
+		resetButton.setEnabled(!running);
+		pauseButton.setEnabled(running);
+		pauseButton.setText("Pause");
+		stopButton.setEnabled(running);
+	}
+
 	public void reset(){
 		if(this.s!=null)
 			s.closeView();
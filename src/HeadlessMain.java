@@ -0,0 +1,186 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Command-line entry point that runs a simulation without a display.
+ * The parameters default to those in ModelConstants and can be overridden
+ * with options such as "--seed 133 --width 100 --steps 20000".
+ * On completion it prints the throughput in steps per second and the
+ * step at which the mothership had received every rock sample.
+ *
+ * With "--checkpoint file --every n" a snapshot of the simulation is
+ * written to the file every n steps, on a background thread, and with
+ * "--restore file" a run carries on from such a snapshot, up to the step
+ * given by --steps or else by the snapshot's configuration.
+ *
+ * With "--events file" everything the vehicles do is recorded in a log,
+ * and with "--restore file --replay log" the run is brought forward from
+ * the snapshot by replaying the log rather than simulating, up to the
+ * step given by --steps, after which it is simulated as usual.
+ */
+public class HeadlessMain {
+
+	public static void main(String[] args) {
+		SimulationConfig.Builder builder = new SimulationConfig.Builder();
+		int threads = 0;
+		Path checkpointFile = null;
+		int every = 0;
+		Path restoreFile = null;
+		Path eventFile = null;
+		Path replayFile = null;
+		int length = -1;
+		SimulationConfig config = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				String option = args[i];
+				if (!option.startsWith("--")) {
+					throw new IllegalArgumentException("Unknown option " + option);
+				}
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for " + option);
+				}
+				String value = args[++i];
+				if (option.equals("--threads")) {
+					threads = Integer.parseInt(value);
+				} else if (option.equals("--checkpoint")) {
+					checkpointFile = Paths.get(value);
+				} else if (option.equals("--every")) {
+					every = Integer.parseInt(value);
+				} else if (option.equals("--restore")) {
+					restoreFile = Paths.get(value);
+				} else if (option.equals("--events")) {
+					eventFile = Paths.get(value);
+				} else if (option.equals("--replay")) {
+					replayFile = Paths.get(value);
+				} else if (option.equals("--steps")) {
+					length = Integer.parseInt(value);
+					builder.length(length);
+				} else {
+					builder.set(option.substring(2), value);
+				}
+			}
+			config = builder.build();
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: HeadlessMain [--steps n] [--threads n] [--seed n] [--width n] [--depth n]"
+					+ " [--clusters n] [--rocks n] [--std x] [--obstacles p] [--vehicles p]"
+					+ " [--behaviour simple|collaborative|optimised|class] [--signal separable|distance]"
+					+ " [--storage flat|chunked|off_heap]"
+					+ " [--storagefile path] [--evaporation n]"
+					+ " [--checkpoint file --every n] [--restore file [--replay file]] [--events file]");
+			System.exit(1);
+		}
+
+		Simulator s;
+		if (restoreFile != null) {
+			try {
+				s = new Simulator(Checkpoint.read(restoreFile), null);
+			}
+			catch (IOException e) {
+				System.err.println("Cannot restore the simulation. " + e.getMessage());
+				System.exit(1);
+				return;
+			}
+		} else {
+			s = new Simulator(config, null);
+		}
+		config = s.getConfig();
+		if (length < 0) {
+			length = config.getLength();
+		}
+		if (replayFile != null) {
+			if (restoreFile == null) {
+				System.err.println("--replay needs the snapshot the log starts from, given by --restore");
+				System.exit(1);
+			}
+			int restoredStep = s.getStep();
+			long replayStart = System.nanoTime();
+			try (EventLog.Reader log = new EventLog.Reader(replayFile)) {
+				s.replay(log, length);
+			}
+			catch (IOException e) {
+				System.err.println("Cannot replay the simulation. " + e.getMessage());
+				System.exit(1);
+			}
+			System.out.printf("Replayed %d steps in %.1f ms%n", s.getStep() - restoredStep,
+					(System.nanoTime() - replayStart) / 1e6);
+		}
+		EventLog events = null;
+		if (eventFile != null) {
+			try {
+				events = new EventLog(eventFile, config.getDepth(), config.getWidth(), s.getStep());
+			}
+			catch (IOException e) {
+				System.err.println("Cannot record the events. " + e.getMessage());
+				System.exit(1);
+			}
+			s.setEventLog(events);
+		}
+		// With no threads the vehicles are stepped serially, otherwise they
+		// plan in parallel on a pool of the given size.
+		ForkJoinPool pool = null;
+		if (threads > 0) {
+			pool = new ForkJoinPool(threads);
+			s.setPool(pool);
+		}
+
+		// Snapshots are written one at a time on their own thread, while
+		// the simulation runs on.
+		ExecutorService writer = null;
+		Future<Void> written = null;
+		if (checkpointFile != null) {
+			writer = Executors.newSingleThreadExecutor();
+		}
+
+		int firstStep = s.getStep();
+		long start = System.nanoTime();
+		int remaining = length - firstStep;
+		while (remaining > 0 && !s.isComplete() && s.isViable()) {
+			int steps = (writer != null && every > 0) ? Math.min(every, remaining) : remaining;
+			s.simulateUntilComplete(steps);
+			remaining -= steps;
+			if (writer != null) {
+				written = s.checkpoint().writeInBackground(checkpointFile, writer);
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+		if (pool != null) {
+			pool.shutdown();
+		}
+		if (events != null) {
+			try {
+				events.close();
+			}
+			catch (IOException e) {
+				System.err.println("Cannot write the events. " + e.getMessage());
+			}
+		}
+		if (writer != null) {
+			writer.shutdown();
+			try {
+				if (written != null) {
+					written.get();
+				}
+			}
+			catch (InterruptedException | ExecutionException e) {
+				System.err.println("Cannot write the checkpoint. " + e.getCause());
+			}
+		}
+
+		System.out.println("Steps: " + s.getStep());
+		System.out.printf("Steps/sec: %.1f%n", (s.getStep() - firstStep) / seconds);
+		if (s.isComplete()) {
+			System.out.println("Target reached at step: " + s.getCompletionStep());
+		} else {
+			System.out.println("Target not reached: " + s.getMothership().getRockCount()
+					+ " of " + config.getRockLocations() + " rocks returned");
+		}
+	}
+}
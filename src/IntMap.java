@@ -0,0 +1,171 @@
+import java.util.Arrays;
+
+/**
+ * A map from cell indices to values, for layers of a field that hold
+ * something in only a few of its cells. The keys are kept in an open
+ * addressed table of ints, so unlike a HashMap with Integer keys it makes
+ * no objects for the keys or the entries, and a lookup touches no more
+ * than a couple of array elements.
+ *
+ * Keys must not be negative, which packed indices never are.
+ * @param <V> The type of the values.
+ */
+final class IntMap<V>
+{
+    // The key of a free slot.
+    private static final int FREE = -1;
+
+    // The keys and values, at the slot found by probing from the hash of
+    // the key; the table is at most half full.
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Make an empty map.
+     */
+    IntMap()
+    {
+        this(16);
+    }
+
+    /**
+     * @param capacity The number of slots, a power of two.
+     */
+    private IntMap(int capacity)
+    {
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE);
+        values = new Object[capacity];
+    }
+
+    /**
+     * Make a map holding the same entries as another.
+     * @param other The map to copy.
+     */
+    IntMap(IntMap<V> other)
+    {
+        keys = other.keys.clone();
+        values = other.values.clone();
+        size = other.size;
+    }
+
+    /**
+     * @return The number of entries.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param key The key, not negative.
+     * @return The value for the key, or null if there is none.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key)
+    {
+        int mask = keys.length - 1;
+        for(int slot = hash(key) & mask; keys[slot] != FREE; slot = (slot + 1) & mask) {
+            if(keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Map a key to a value, replacing any value it had.
+     * @param key The key, not negative.
+     * @param value The value, not null.
+     * @throws IllegalArgumentException If the key is negative.
+     */
+    public void put(int key, V value)
+    {
+        if(key < 0) {
+            throw new IllegalArgumentException("Negative key " + key);
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while(keys[slot] != FREE) {
+            if(keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if(++size * 2 > keys.length) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Remove the entry for a key, if there is one.
+     * @param key The key.
+     */
+    public void remove(int key)
+    {
+        if(key < 0) {
+            return;
+        }
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while(keys[slot] != key) {
+            if(keys[slot] == FREE) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        size--;
+        // Close the gap by moving back any later entry of the same run
+        // that would otherwise no longer be found from its home slot.
+        int gap = slot;
+        for(int next = (gap + 1) & mask; keys[next] != FREE; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if(((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = FREE;
+        values[gap] = null;
+    }
+
+    /**
+     * Move the entries into a table with the given number of slots.
+     * @param capacity A power of two more than twice the size.
+     */
+    private void resize(int capacity)
+    {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        Arrays.fill(keys, FREE);
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != FREE) {
+                int slot = hash(oldKeys[i]) & mask;
+                while(keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Spread the keys, as neighbouring cells have consecutive indices.
+     * @param key A key.
+     * @return Its hash.
+     */
+    private static int hash(int key)
+    {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,159 @@
+import java.util.Arrays;
+
+/**
+ * A set of cell indices, kept in an open addressed table of ints like the
+ * keys of an IntMap, so that it takes memory in proportion to its members
+ * rather than to the field and makes no objects as they come and go.
+ *
+ * The members are visited by slot: for each slot from 0 to slots() - 1,
+ * member(slot) is a member or FREE. The set must not change while its
+ * members are visited.
+ *
+ * Members must not be negative, which packed indices never are.
+ */
+final class IntSet
+{
+    // What member returns for a slot holding no member.
+    static final int FREE = -1;
+
+    // The members, at the slot found by probing from their hash; the
+    // table is at most half full.
+    private int[] members;
+    private int size;
+
+    /**
+     * Make an empty set.
+     */
+    IntSet()
+    {
+        members = new int[16];
+        Arrays.fill(members, FREE);
+    }
+
+    /**
+     * Make a set holding the same members as another.
+     * @param other The set to copy.
+     */
+    IntSet(IntSet other)
+    {
+        members = other.members.clone();
+        size = other.size;
+    }
+
+    /**
+     * @return The number of members.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * @param value A value.
+     * @return Whether it is a member.
+     */
+    public boolean contains(int value)
+    {
+        int mask = members.length - 1;
+        for(int slot = hash(value) & mask; members[slot] != FREE; slot = (slot + 1) & mask) {
+            if(members[slot] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Add a member, if it is not one already.
+     * @param value The value, not negative.
+     * @throws IllegalArgumentException If the value is negative.
+     */
+    public void add(int value)
+    {
+        if(value < 0) {
+            throw new IllegalArgumentException("Negative member " + value);
+        }
+        int mask = members.length - 1;
+        int slot = hash(value) & mask;
+        while(members[slot] != FREE) {
+            if(members[slot] == value) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        members[slot] = value;
+        if(++size * 2 > members.length) {
+            int[] old = members;
+            members = new int[old.length * 2];
+            Arrays.fill(members, FREE);
+            mask = members.length - 1;
+            for(int i = 0; i < old.length; i++) {
+                if(old[i] != FREE) {
+                    slot = hash(old[i]) & mask;
+                    while(members[slot] != FREE) {
+                        slot = (slot + 1) & mask;
+                    }
+                    members[slot] = old[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove a member, if it is one.
+     * @param value The value.
+     */
+    public void remove(int value)
+    {
+        if(value < 0) {
+            return;
+        }
+        int mask = members.length - 1;
+        int slot = hash(value) & mask;
+        while(members[slot] != value) {
+            if(members[slot] == FREE) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        size--;
+        // Close the gap as IntMap.remove does.
+        int gap = slot;
+        for(int next = (gap + 1) & mask; members[next] != FREE; next = (next + 1) & mask) {
+            int home = hash(members[next]) & mask;
+            if(((next - home) & mask) >= ((next - gap) & mask)) {
+                members[gap] = members[next];
+                gap = next;
+            }
+        }
+        members[gap] = FREE;
+    }
+
+    /**
+     * @return The number of slots to visit the members by.
+     */
+    public int slots()
+    {
+        return members.length;
+    }
+
+    /**
+     * @param slot A slot, from 0 to slots() - 1.
+     * @return The member in the slot, or FREE.
+     */
+    public int member(int slot)
+    {
+        return members[slot];
+    }
+
+    /**
+     * Spread the members, as neighbouring cells have consecutive indices.
+     * @param value A value.
+     * @return Its hash.
+     */
+    private static int hash(int value)
+    {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -1,47 +1,46 @@
-
-import java.util.Random;
-import java.awt.Color;
-
-class ModelConstants {
-	public static int RANDOM_SEED = 52;
-	
-	
-	//the duration of the simulation 
-	public static int LENGTH = 10000;
-	
-	// Constants representing configuration information for the simulation.
-    // The default width for the grid.
-    public static int DEFAULT_WIDTH = 50;
-    // The default depth of the grid.
-    public static int DEFAULT_DEPTH = 50;
-    
-
-    // The number of rock clusters.
-    public static int ROCK_CLUSTERS = 7;
-    // The std dev of rock clusters.
-    public static double ROCK_CLUSTER_STD = 2.0;
-    // The number of rock locations.
-    public static int ROCK_LOCATIONS = 300;
-
-    
-    // The probability that an obstacle will be created in any given grid position.
-    public static double OBSTACLE_CREATION_PROBABILITY = 0.01;
-    public static double VEHICLE_CREATION_PROBABILITY = 0.01; 	
-    
-    // Whether or not to show in colour how many crumbs a location contains
-    public static boolean SHOW_CRUMBS = true;
-    	
-    //The colours
-    public static final Color rockColor = Color.orange;
-    public static final Color obstacleColor = Color.black;
-    public static final Color vehicleColor = Color.cyan;
-    public static final Color vehicleCarryingSampleColor = Color.blue;
-    public static final Color mothershipColor = Color.magenta;	
-    	
-    public static Random random=null;
-    
-    public static void setRandom()
-    {
-    	random = new Random(RANDOM_SEED);
-    }
-}
+
+/**
+ * The default parameters of a simulation. A simulation reads its parameters
+ * from its own SimulationConfig, which starts from these values.
+ */
+class ModelConstants {
+	public static final int RANDOM_SEED = 52;
+	
+	
+	//the duration of the simulation 
+	public static final int LENGTH = 10000;
+	
+	// Constants representing configuration information for the simulation.
+    // The default width for the grid.
+    public static final int DEFAULT_WIDTH = 50;
+    // The default depth of the grid.
+    public static final int DEFAULT_DEPTH = 50;
+    
+
+    // The number of rock clusters.
+    public static final int ROCK_CLUSTERS = 7;
+    // The std dev of rock clusters.
+    public static final double ROCK_CLUSTER_STD = 2.0;
+    // The number of rock locations.
+    public static final int ROCK_LOCATIONS = 300;
+
+    
+    // The probability that an obstacle will be created in any given grid position.
+    public static final double OBSTACLE_CREATION_PROBABILITY = 0.01;
+    public static final double VEHICLE_CREATION_PROBABILITY = 0.01; 	
+    
+    // The behaviour followed by every vehicle.
+    public static final Behaviour BEHAVIOUR = Behaviour.OPTIMISED;
+    
+    // The kind of signal the mothership emits.
+    public static final SignalType SIGNAL = SignalType.SEPARABLE;
+    
+    // How the cells of the field are stored.
+    public static final StorageType STORAGE = StorageType.FLAT;
+    
+    // Every how many steps one crumb evaporates from each location; 0 for never.
+    public static final int CRUMB_EVAPORATION_PERIOD = 0;
+    
+    // Whether or not to show in colour how many crumbs a location contains
+    public static final boolean SHOW_CRUMBS = true;
+}
@@ -0,0 +1,51 @@
+/**
+ * A reusable cursor over the 3x3 neighbourhood of a cell in a Field.
+ * The cells are given as packed indices (row * width + col) in random
+ * order and include the centre cell itself. Filling a cursor allocates
+ * nothing, so a caller can keep one cursor and reuse it for every query.
+ *
+ * A cursor filled by Field.survey also holds a summary of what a vehicle
+ * in the centre cell can see, gathered in the same single pass over the
+ * cells. Where the summary names the first cell of some kind, it is the
+ * first in the visiting order.
+ */
+class Neighbourhood
+{
+    // The number of cells in a neighbourhood, including the centre.
+    static final int SIZE = 9;
+    
+    // The packed indices of the cells, in the order they are visited.
+    final int[] cells = new int[SIZE];
+    
+    // The summary filled by Field.survey; cells are -1 when there is none.
+    // Whether the mothership is in the neighbourhood.
+    boolean nextToMothership;
+    // The first rock.
+    int rock;
+    // The free cell holding the most crumbs, if any holds some.
+    int mostCrumbs;
+    // The first free cell with a stronger signal than the centre, and the
+    // first with a weaker one.
+    int upGradient;
+    int downGradient;
+    // The free cells, in the order they are visited.
+    final int[] free = new int[SIZE];
+    int freeCount;
+    
+    /**
+     * @return The number of cells in the neighbourhood.
+     */
+    public int size()
+    {
+        return SIZE;
+    }
+    
+    /**
+     * @param i The position of a cell in the visiting order.
+     * @return The packed index of that cell.
+     */
+    public int get(int i)
+    {
+        return cells[i];
+    }
+}
@@ -1,4 +1,4 @@
-
-class Obstacle extends Entity{
-	public Obstacle(Location location){super(location);}
-}
+
+class Obstacle extends Entity{
+	public Obstacle(Location location){super(location);}
+}
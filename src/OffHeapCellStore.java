@@ -0,0 +1,204 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Stores the kinds and the crumbs of the cells of a field outside the Java
+ * heap, in direct buffers or in a memory-mapped file, so that the heap
+ * stays small whatever the size of the field and the operating system can
+ * page out the parts of a large field that are not in use. Only the
+ * entities, which are few, are kept on the heap, in a map from packed
+ * index to entity. A copy of a store in a file is kept in a file of its
+ * own next to it, so the other buffers of a simulation stay off the heap
+ * and out of direct memory too.
+ * 
+ * Each cell takes six bytes: its kind, its crumbs (at most 127) and the
+ * stamp of its crumbs. A buffer cannot hold more than 2GB, so the cells
+ * are split into segments of SEGMENT_CELLS cells with buffers of their own.
+ */
+class OffHeapCellStore implements CellStore
+{
+    // A segment holds 1 << SEGMENT_BITS cells.
+    private static final int SEGMENT_BITS = 27;
+    private static final int SEGMENT_CELLS = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_CELLS - 1;
+    
+    private int size;
+    // The kind, the crumbs and the crumb stamp of each cell, by segment.
+    private ByteBuffer[] types;
+    private ByteBuffer[] crumbs;
+    private ByteBuffer[] stamps;
+    // The entities, by packed index.
+    private IntMap<Entity> entities;
+    // The file the cells were first mapped onto, next to which any copies
+    // are kept; null if they are in direct buffers.
+    private String file;
+    
+    /**
+     * Keep the cells in direct buffers.
+     * @param size The number of cells.
+     */
+    OffHeapCellStore(int size)
+    {
+        this.size = size;
+        int segments = segments(size);
+        types = new ByteBuffer[segments];
+        crumbs = new ByteBuffer[segments];
+        stamps = new ByteBuffer[segments];
+        for(int s = 0; s < segments; s++) {
+            int cells = cellsIn(s);
+            types[s] = ByteBuffer.allocateDirect(cells);
+            crumbs[s] = ByteBuffer.allocateDirect(cells);
+            stamps[s] = ByteBuffer.allocateDirect(4 * cells);
+        }
+        entities = new IntMap<Entity>();
+    }
+    
+    /**
+     * Keep the cells in a file mapped into memory. The file is emptied,
+     * then extended to six bytes a cell: the kinds, then the crumbs, then
+     * the stamps. On most systems the file takes no disk space until the
+     * cells are written.
+     * @param size The number of cells.
+     * @param file The path of the file.
+     * @throws UncheckedIOException If the file cannot be created or mapped.
+     */
+    OffHeapCellStore(int size, String file)
+    {
+        this(size, new File(file), false);
+        this.file = file;
+    }
+    
+    /**
+     * Keep the cells in a file mapped into memory.
+     * @param size The number of cells.
+     * @param path The file.
+     * @param temporary Whether to delete the file once it is mapped, so
+     *        that the system frees its space when the mapping is dropped.
+     * @throws UncheckedIOException If the file cannot be created or mapped.
+     */
+    private OffHeapCellStore(int size, File path, boolean temporary)
+    {
+        this.size = size;
+        int segments = segments(size);
+        types = new ByteBuffer[segments];
+        crumbs = new ByteBuffer[segments];
+        stamps = new ByteBuffer[segments];
+        try (RandomAccessFile raf = new RandomAccessFile(path, "rw")) {
+            raf.setLength(0);
+            raf.setLength(6L * size);
+            FileChannel channel = raf.getChannel();
+            for(int s = 0; s < segments; s++) {
+                long first = (long) s << SEGMENT_BITS;
+                int cells = cellsIn(s);
+                types[s] = channel.map(FileChannel.MapMode.READ_WRITE, first, cells);
+                crumbs[s] = channel.map(FileChannel.MapMode.READ_WRITE, size + first, cells);
+                stamps[s] = channel.map(FileChannel.MapMode.READ_WRITE, 2L * size + 4 * first, 4L * cells);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException("Cannot map the field onto " + path, e);
+        }
+        finally {
+            if(temporary && !path.delete()) {
+                path.deleteOnExit();
+            }
+        }
+        entities = new IntMap<Entity>();
+    }
+    
+    /**
+     * @return The number of segments needed for the given number of cells.
+     */
+    private static int segments(int size)
+    {
+        return (int) (((long) size + SEGMENT_MASK) >>> SEGMENT_BITS);
+    }
+    
+    /**
+     * @return The number of cells in the given segment.
+     */
+    private int cellsIn(int segment)
+    {
+        return (int) Math.min(SEGMENT_CELLS, size - ((long) segment << SEGMENT_BITS));
+    }
+    
+    @Override
+    public byte getType(int index)
+    {
+        return types[index >>> SEGMENT_BITS].get(index & SEGMENT_MASK);
+    }
+    
+    @Override
+    public Entity getEntity(int index)
+    {
+        return entities.get(index);
+    }
+    
+    @Override
+    public void setCell(int index, byte type, Entity entity)
+    {
+        types[index >>> SEGMENT_BITS].put(index & SEGMENT_MASK, type);
+        if(entity == null) {
+            entities.remove(index);
+        }
+        else {
+            entities.put(index, entity);
+        }
+    }
+    
+    @Override
+    public int getCrumbs(int index)
+    {
+        return crumbs[index >>> SEGMENT_BITS].get(index & SEGMENT_MASK);
+    }
+    
+    @Override
+    public int getCrumbStamp(int index)
+    {
+        return stamps[index >>> SEGMENT_BITS].getInt(4 * (index & SEGMENT_MASK));
+    }
+    
+    @Override
+    public void setCrumbs(int index, int quantity, int stamp)
+    {
+        crumbs[index >>> SEGMENT_BITS].put(index & SEGMENT_MASK, (byte) quantity);
+        stamps[index >>> SEGMENT_BITS].putInt(4 * (index & SEGMENT_MASK), stamp);
+    }
+    
+    /**
+     * The copy is kept in direct buffers if this store is, and otherwise in
+     * a temporary file next to the file of this store.
+     * @throws UncheckedIOException If the file for the copy cannot be made.
+     */
+    @Override
+    public CellStore copy()
+    {
+        OffHeapCellStore copy;
+        if(file == null) {
+            copy = new OffHeapCellStore(size);
+        }
+        else {
+            File original = new File(file).getAbsoluteFile();
+            try {
+                File sibling = File.createTempFile(original.getName() + ".copy", null,
+                                                   original.getParentFile());
+                copy = new OffHeapCellStore(size, sibling, true);
+            }
+            catch (IOException e) {
+                throw new UncheckedIOException("Cannot make a file next to " + file, e);
+            }
+            copy.file = file;
+        }
+        for(int s = 0; s < types.length; s++) {
+            copy.types[s].put(0, types[s], 0, types[s].capacity());
+            copy.crumbs[s].put(0, crumbs[s], 0, crumbs[s].capacity());
+            copy.stamps[s].put(0, stamps[s], 0, stamps[s].capacity());
+        }
+        copy.entities = new IntMap<Entity>(entities);
+        return copy;
+    }
+}
@@ -0,0 +1,37 @@
+/**
+ * The optimised subsumption hierarchy: (1) ≺ (5) ≺ (3) ≺ (8) ≺ (7). See
+ * Vehicle for the details. It draws no random numbers.
+ */
+final class OptimisedBehaviour implements BehaviourStrategy
+{
+    @Override
+    public void plan(Fleet fleet, int v, Field f, Neighbourhood n, Fleet.Planner planner)
+    {
+        byte plan = 0;
+        int target = -1;
+        int destination = -1;
+        if(fleet.isCarrying(v) && n.nextToMothership) {   // (1)
+            plan = Fleet.DELIVER;
+        }
+        else if(fleet.isCarrying(v)) {                    // (5)*
+            plan = Fleet.drop(2);
+            destination = fleet.upGradient(v, f, n);
+            if(destination < 0) {
+                destination = Fleet.firstAvailable(n);
+            }
+        }
+        else if(n.rock >= 0) {                            // (3)
+            plan = Fleet.ROCK;
+            target = n.rock;
+        }
+        else if(n.mostCrumbs >= 0) {                      // (8)
+            plan = Fleet.CRUMB;
+            target = n.mostCrumbs;
+            destination = n.mostCrumbs;
+        }
+        else {                                            // (7)
+            destination = Fleet.firstAvailable(n);
+        }
+        fleet.setPlan(v, plan, target, destination);
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a simulation for every combination of a set of parameter values
+ * and writes one CSV row per run to a file as soon as the run finishes.
+ *
+ * Each option takes a comma separated list of values; integer options
+ * also take an inclusive range "from:to" or "from:to:step", e.g.
+ *
+ *   ParameterSweep --out sweep.csv --seed 1:20 --clusters 7,30 --behaviour simple,optimised
+ *
+ * Options that are not given keep their value from ModelConstants.
+ * The runs are spread over all cores by a work-stealing pool. Each run has
+ * its own SimulationConfig, so they all share one warm JVM.
+ */
+public class ParameterSweep {
+
+	// The parameters that can be swept, in the order of the CSV columns.
+	private static final String[] PARAMETERS = {"seed", "width", "depth", "clusters",
+			"rocks", "std", "obstacles", "vehicles", "behaviour"};
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		List<List<String>> values = new ArrayList<List<String>>();
+		values.add(Arrays.asList(Integer.toString(ModelConstants.RANDOM_SEED)));
+		values.add(Arrays.asList(Integer.toString(ModelConstants.DEFAULT_WIDTH)));
+		values.add(Arrays.asList(Integer.toString(ModelConstants.DEFAULT_DEPTH)));
+		values.add(Arrays.asList(Integer.toString(ModelConstants.ROCK_CLUSTERS)));
+		values.add(Arrays.asList(Integer.toString(ModelConstants.ROCK_LOCATIONS)));
+		values.add(Arrays.asList(Double.toString(ModelConstants.ROCK_CLUSTER_STD)));
+		values.add(Arrays.asList(Double.toString(ModelConstants.OBSTACLE_CREATION_PROBABILITY)));
+		values.add(Arrays.asList(Double.toString(ModelConstants.VEHICLE_CREATION_PROBABILITY)));
+		values.add(Arrays.asList(ModelConstants.BEHAVIOUR.name().toLowerCase()));
+
+		String out = "sweep.csv";
+		int steps = ModelConstants.LENGTH;
+		int parallelism = Runtime.getRuntime().availableProcessors();
+		try {
+			for (int i = 0; i < args.length; i += 2) {
+				String option = args[i];
+				if (!option.startsWith("--")) {
+					throw new IllegalArgumentException("Unknown option " + option);
+				}
+				if (i + 1 >= args.length) {
+					throw new IllegalArgumentException("Missing value for " + option);
+				}
+				String value = args[i + 1];
+				int parameter = Arrays.asList(PARAMETERS).indexOf(option.substring(2));
+				if (option.equals("--out")) {
+					out = value;
+				} else if (option.equals("--steps")) {
+					steps = Integer.parseInt(value);
+				} else if (option.equals("--parallelism")) {
+					parallelism = Integer.parseInt(value);
+				} else if (parameter >= 0) {
+					values.set(parameter, expand(value));
+				} else {
+					throw new IllegalArgumentException("Unknown option " + option);
+				}
+			}
+		}
+		catch (IllegalArgumentException e) {
+			System.err.println(e.getMessage());
+			System.err.println("Usage: ParameterSweep [--out file.csv] [--steps n] [--parallelism n]"
+					+ " [--seed a:b] [--width list] [--depth list] [--clusters list] [--rocks list]"
+					+ " [--std list] [--obstacles list] [--vehicles list] [--behaviour list]");
+			System.exit(1);
+		}
+
+		List<String[]> runs = combinations(values);
+		System.out.println("Running " + runs.size() + " simulations on " + parallelism + " threads");
+
+		final PrintWriter csv = new PrintWriter(new FileWriter(out));
+		csv.println(String.join(",", PARAMETERS) + ",steps_to_collect,steps_run,steps_per_sec,wall_ms");
+		csv.flush();
+
+		ExecutorService pool = Executors.newWorkStealingPool(parallelism);
+		for (final String[] run : runs) {
+			final int maxSteps = steps;
+			pool.execute(new Runnable() {
+				@Override
+				public void run() {
+					String row = String.join(",", run) + "," + simulate(run, maxSteps);
+					synchronized (csv) {
+						csv.println(row);
+						csv.flush();
+					}
+				}
+			});
+		}
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+		csv.close();
+	}
+
+	/**
+	 * Run one simulation.
+	 * @param run The value of each parameter, in the order of PARAMETERS.
+	 * @param steps The maximum number of steps to run.
+	 * @return The result columns of the CSV row: steps to collect every rock
+	 *         (empty if not reached), steps run, steps per second and wall time.
+	 */
+	private static String simulate(String[] run, int steps) {
+		try {
+			SimulationConfig.Builder builder = new SimulationConfig.Builder().length(steps);
+			for (int i = 0; i < PARAMETERS.length; i++) {
+				builder.set(PARAMETERS[i], run[i]);
+			}
+
+			long start = System.nanoTime();
+			Simulator s = new Simulator(builder.build(), null);
+			s.simulateUntilComplete(steps);
+			long wallNanos = System.nanoTime() - start;
+
+			String collected = s.isComplete() ? Integer.toString(s.getCompletionStep()) : "";
+			return collected + "," + s.getStep() + ","
+					+ String.format("%.1f", s.getStep() / (wallNanos / 1e9)) + "," + wallNanos / 1000000;
+		}
+		catch (RuntimeException e) {
+			System.err.println("Problem running simulation " + String.join(",", run) + ". " + e);
+			return ",,,";
+		}
+	}
+
+	/**
+	 * @param value A comma separated list of values, in which an integer
+	 *        range "from:to" or "from:to:step" stands for each value in it.
+	 * @return The individual values.
+	 */
+	private static List<String> expand(String value) {
+		List<String> values = new ArrayList<String>();
+		for (String item : value.split(",")) {
+			if (item.contains(":")) {
+				String[] range = item.split(":");
+				int from = Integer.parseInt(range[0]);
+				int to = Integer.parseInt(range[1]);
+				int step = range.length > 2 ? Integer.parseInt(range[2]) : 1;
+				if (step <= 0) {
+					throw new IllegalArgumentException("Range step must be positive: " + item);
+				}
+				for (int v = from; v <= to; v += step) {
+					values.add(Integer.toString(v));
+				}
+			} else {
+				values.add(item);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * @param values The values of each parameter.
+	 * @return Every combination of one value per parameter.
+	 */
+	private static List<String[]> combinations(List<List<String>> values) {
+		List<String[]> runs = new ArrayList<String[]>();
+		runs.add(new String[0]);
+		for (List<String> parameterValues : values) {
+			List<String[]> next = new ArrayList<String[]>();
+			for (String[] prefix : runs) {
+				for (String v : parameterValues) {
+					String[] run = Arrays.copyOf(prefix, prefix.length + 1);
+					run[prefix.length] = v;
+					next.add(run);
+				}
+			}
+			runs = next;
+		}
+		return runs;
+	}
+}
@@ -0,0 +1,88 @@
+import java.util.SplittableRandom;
+
+/**
+ * Derives the random numbers of a simulation from its seed.
+ * Every part of the simulation that makes random choices draws from its
+ * own stream: the simulation as a whole while setting up, each tile of
+ * the field while it is populated, and each vehicle in each step.
+ * A stream depends only on the seed and on what it is for, never on
+ * which thread uses it or in what order, so a seed always gives the same
+ * trajectories however many threads are used, and no stream is shared
+ * between threads.
+ */
+final class RandomStreams
+{
+    // Constants keeping the streams of different kinds apart.
+    private static final long TILE = 0x5851f42d4c957f2dL;
+    private static final long VEHICLE = 0x14057b7ef767814fL;
+    
+    private final long seed;
+    
+    /**
+     * @param seed The seed of the simulation.
+     */
+    RandomStreams(long seed)
+    {
+        this.seed = seed;
+    }
+    
+    /**
+     * @return The seed all streams are derived from.
+     */
+    public long getSeed()
+    {
+        return seed;
+    }
+    
+    /**
+     * @return A new stream for the simulation as a whole, used while
+     *         setting up, e.g. to place the rocks and the mothership.
+     */
+    public SplittableRandom forSimulation()
+    {
+        return new SplittableRandom(seed);
+    }
+    
+    /**
+     * @param tile The number of a tile of the field.
+     * @return The stream used to populate that tile.
+     */
+    public SplittableRandom forTile(int tile)
+    {
+        return new SplittableRandom(mix(mix(seed ^ TILE) + tile));
+    }
+    
+    /**
+     * @param vehicle The number of a vehicle.
+     * @param step The step of the simulation.
+     * @return The stream of that vehicle's choices in that step.
+     */
+    public SplittableRandom forVehicle(int vehicle, int step)
+    {
+        return new SplittableRandom(vehicleSeed(vehicle, step));
+    }
+    
+    /**
+     * @param vehicle The number of a vehicle.
+     * @param step The step of the simulation.
+     * @return The seed of the stream of that vehicle's choices in that
+     *         step, for drawing from it without making a generator.
+     */
+    public long vehicleSeed(int vehicle, int step)
+    {
+        return mix(mix(mix(seed ^ VEHICLE) + vehicle) + step);
+    }
+    
+    /**
+     * Scramble the bits of a value (the finaliser of SplitMix64),
+     * so that nearby inputs give unrelated outputs.
+     * @param z The value to scramble.
+     * @return The scrambled value.
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,4 +1,4 @@
-
-class Rock extends Entity{
-	public Rock(Location location){super(location);}
-}
+
+class Rock extends Entity{
+	public Rock(Location location){super(location);}
+}
@@ -0,0 +1,73 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The straight-line signal of a single mothership. The signal in a cell is
+ * depth^2 + width^2 less the squared torus distance to the mothership.
+ * That is the sum of a term for the row and a term for the column, so only
+ * depth + width terms are stored. Obstacles are ignored.
+ */
+class SeparableSignal implements SignalField
+{
+    private int depth, width;
+    // The signal term of each row and of each column.
+    private int[] rowSignal, colSignal;
+    // The number of times the signal has been emitted.
+    private int version;
+    
+    /**
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     */
+    SeparableSignal(int depth, int width)
+    {
+        this.depth = depth;
+        this.width = width;
+        rowSignal = new int[depth];
+        colSignal = new int[width];
+    }
+    
+    /**
+     * Emit the signal of the first base; this signal cannot hold more than one.
+     */
+    @Override
+    public void emit(Field field, int[] bases)
+    {
+        int baseRow = bases[0] / width;
+        int baseCol = bases[0] % width;
+        for(int row = 0; row < depth; row++) {
+            int d1 = Math.abs(row - baseRow);
+            int d2 = depth - d1;
+            rowSignal[row] = depth * depth - Math.min(d1 * d1, d2 * d2);
+        }
+        for(int col = 0; col < width; col++) {
+            int d3 = Math.abs(col - baseCol);
+            int d4 = width - d3;
+            colSignal[col] = width * width - Math.min(d3 * d3, d4 * d4);
+        }
+        version++;
+    }
+    
+    @Override
+    public void cellChanged(Field field, int index)
+    {
+        // Obstacles do not affect this signal.
+    }
+    
+    @Override
+    public int getStrength(int index)
+    {
+        return rowSignal[index / width] + colSignal[index % width];
+    }
+    
+    @Override
+    public int getVersion()
+    {
+        return version;
+    }
+    
+    @Override
+    public void setPool(ForkJoinPool pool)
+    {
+        // The signal is too cheap to compute to be worth splitting.
+    }
+}
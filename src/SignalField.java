@@ -0,0 +1,43 @@
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The signal the motherships emit for the vehicles to follow home.
+ * The stronger the signal in a cell, the nearer the cell is to a
+ * mothership. Both buffers of a field share one signal.
+ */
+interface SignalField
+{
+    /**
+     * Emit the signal from the given cells, replacing any earlier signal.
+     * @param field The field the signal is emitted in.
+     * @param bases The packed indices of the cells holding a mothership.
+     */
+    void emit(Field field, int[] bases);
+    
+    /**
+     * Tell the signal that a cell has become blocked by an obstacle, or
+     * has stopped being blocked.
+     * @param field The field holding the cell.
+     * @param index The packed index of the cell.
+     */
+    void cellChanged(Field field, int index);
+    
+    /**
+     * @param index The packed index (row * width + col) of a cell.
+     * @return The strength of the signal in that cell.
+     */
+    int getStrength(int index);
+    
+    /**
+     * @return A number that changes whenever the strength of any cell
+     *         changes, so that anything derived from the signal can tell
+     *         when it is out of date.
+     */
+    int getVersion();
+    
+    /**
+     * @param pool The pool on which the signal may be computed in
+     *        parallel, or null to compute it on the calling thread.
+     */
+    void setPool(ForkJoinPool pool);
+}
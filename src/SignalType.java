@@ -0,0 +1,10 @@
+/**
+ * The kinds of signal a mothership can emit for the vehicles to follow home.
+ */
+enum SignalType
+{
+    // The straight-line signal, which ignores obstacles.
+    SEPARABLE,
+    // The shortest-path distance around obstacles.
+    DISTANCE
+}
@@ -0,0 +1,31 @@
+/**
+ * The simple subsumption hierarchy: (1) ≺ (2) ≺ (3) ≺ (4). See Vehicle
+ * for the details.
+ */
+final class SimpleBehaviour implements BehaviourStrategy
+{
+    @Override
+    public void plan(Fleet fleet, int v, Field f, Neighbourhood n, Fleet.Planner planner)
+    {
+        byte plan = 0;
+        int target = -1;
+        int destination = -1;
+        if(fleet.isCarrying(v) && n.nextToMothership) {   // (1)
+            plan = Fleet.DELIVER;
+        }
+        else if(fleet.isCarrying(v)) {                    // (2)
+            destination = fleet.upGradient(v, f, n);
+            if(destination < 0) {
+                destination = Fleet.randomAvailable(n, planner);
+            }
+        }
+        else if(n.rock >= 0) {                            // (3)
+            plan = Fleet.ROCK;
+            target = n.rock;
+        }
+        else {                                            // (4)
+            destination = Fleet.randomAvailable(n, planner);
+        }
+        fleet.setPlan(v, plan, target, destination);
+    }
+}
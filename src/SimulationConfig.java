@@ -0,0 +1,280 @@
+/**
+ * The parameters of one simulation. A configuration cannot be changed
+ * once it is built, so any number of simulations can run side by side in
+ * one JVM, each with its own configuration and its own random numbers.
+ *
+ * A configuration is made with a Builder, which starts from the defaults
+ * in ModelConstants:
+ *
+ *   SimulationConfig config = new SimulationConfig.Builder()
+ *           .seed(133).width(100).depth(100).build();
+ */
+final class SimulationConfig
+{
+    // The seed of the simulation's random numbers.
+    private final int seed;
+    // The default number of steps to run for.
+    private final int length;
+    // The size of the grid.
+    private final int width, depth;
+    // The number of rock clusters, their std dev and the number of rock locations.
+    private final int rockClusters;
+    private final double rockClusterStd;
+    private final int rockLocations;
+    // The probabilities that an obstacle or a vehicle is created in any given grid position.
+    private final double obstacleProbability;
+    private final double vehicleProbability;
+    // The name of the behaviour strategy followed by every vehicle.
+    private final String behaviour;
+    // The kind of signal the mothership emits.
+    private final SignalType signal;
+    // How the cells of the field are stored.
+    private final StorageType storage;
+    // The file holding an off-heap field, or null to keep it in memory.
+    private final String storageFile;
+    // Every how many steps one crumb evaporates from each location; 0 for never.
+    private final int evaporationPeriod;
+    // Whether or not to show in colour how many crumbs a location contains.
+    private final boolean showCrumbs;
+
+    /**
+     * Copy the values of a builder.
+     * @param b The builder holding the values.
+     */
+    private SimulationConfig(Builder b)
+    {
+        seed = b.seed;
+        length = b.length;
+        width = b.width;
+        depth = b.depth;
+        rockClusters = b.rockClusters;
+        rockClusterStd = b.rockClusterStd;
+        rockLocations = b.rockLocations;
+        obstacleProbability = b.obstacleProbability;
+        vehicleProbability = b.vehicleProbability;
+        behaviour = b.behaviour;
+        signal = b.signal;
+        storage = b.storage;
+        storageFile = b.storageFile;
+        evaporationPeriod = b.evaporationPeriod;
+        showCrumbs = b.showCrumbs;
+    }
+
+    /**
+     * @return A configuration holding the defaults in ModelConstants.
+     */
+    public static SimulationConfig defaults()
+    {
+        return new Builder().build();
+    }
+
+    /**
+     * @return A builder starting from the values of this configuration.
+     */
+    public Builder toBuilder()
+    {
+        Builder b = new Builder();
+        b.seed = seed;
+        b.length = length;
+        b.width = width;
+        b.depth = depth;
+        b.rockClusters = rockClusters;
+        b.rockClusterStd = rockClusterStd;
+        b.rockLocations = rockLocations;
+        b.obstacleProbability = obstacleProbability;
+        b.vehicleProbability = vehicleProbability;
+        b.behaviour = behaviour;
+        b.signal = signal;
+        b.storage = storage;
+        b.storageFile = storageFile;
+        b.evaporationPeriod = evaporationPeriod;
+        b.showCrumbs = showCrumbs;
+        return b;
+    }
+
+    public int getSeed() { return seed; }
+
+    public int getLength() { return length; }
+
+    public int getWidth() { return width; }
+
+    public int getDepth() { return depth; }
+
+    public int getRockClusters() { return rockClusters; }
+
+    public double getRockClusterStd() { return rockClusterStd; }
+
+    /**
+     * @return The number of rock locations, which is also the number of
+     *         samples to return to the mothership.
+     */
+    public int getRockLocations() { return rockLocations; }
+
+    public double getObstacleProbability() { return obstacleProbability; }
+
+    public double getVehicleProbability() { return vehicleProbability; }
+
+    /**
+     * @return The name of the behaviour followed by every vehicle, as
+     *         registered in Behaviours.
+     */
+    public String getBehaviour() { return behaviour; }
+
+    /**
+     * @return The strategy of the behaviour followed by every vehicle.
+     */
+    public BehaviourStrategy getStrategy() { return Behaviours.get(behaviour); }
+
+    public SignalType getSignal() { return signal; }
+
+    public StorageType getStorage() { return storage; }
+
+    /**
+     * @return The file an off-heap field is mapped onto, or null if it
+     *         is kept in memory.
+     */
+    public String getStorageFile() { return storageFile; }
+
+    /**
+     * @return Every how many steps one crumb evaporates from each
+     *         location, or 0 if crumbs never evaporate.
+     */
+    public int getEvaporationPeriod() { return evaporationPeriod; }
+
+    public boolean isShowCrumbs() { return showCrumbs; }
+
+    /**
+     * Collects the values of a configuration, starting from the
+     * defaults in ModelConstants.
+     */
+    static class Builder
+    {
+        private int seed = ModelConstants.RANDOM_SEED;
+        private int length = ModelConstants.LENGTH;
+        private int width = ModelConstants.DEFAULT_WIDTH;
+        private int depth = ModelConstants.DEFAULT_DEPTH;
+        private int rockClusters = ModelConstants.ROCK_CLUSTERS;
+        private double rockClusterStd = ModelConstants.ROCK_CLUSTER_STD;
+        private int rockLocations = ModelConstants.ROCK_LOCATIONS;
+        private double obstacleProbability = ModelConstants.OBSTACLE_CREATION_PROBABILITY;
+        private double vehicleProbability = ModelConstants.VEHICLE_CREATION_PROBABILITY;
+        private String behaviour = Behaviours.canonicalName(ModelConstants.BEHAVIOUR.name());
+        private SignalType signal = ModelConstants.SIGNAL;
+        private StorageType storage = ModelConstants.STORAGE;
+        private String storageFile = null;
+        private int evaporationPeriod = ModelConstants.CRUMB_EVAPORATION_PERIOD;
+        private boolean showCrumbs = ModelConstants.SHOW_CRUMBS;
+
+        public Builder seed(int seed) { this.seed = seed; return this; }
+
+        public Builder length(int length) { this.length = length; return this; }
+
+        public Builder width(int width) { this.width = width; return this; }
+
+        public Builder depth(int depth) { this.depth = depth; return this; }
+
+        public Builder rockClusters(int rockClusters) { this.rockClusters = rockClusters; return this; }
+
+        public Builder rockClusterStd(double rockClusterStd) { this.rockClusterStd = rockClusterStd; return this; }
+
+        public Builder rockLocations(int rockLocations) { this.rockLocations = rockLocations; return this; }
+
+        public Builder obstacleProbability(double p) { this.obstacleProbability = p; return this; }
+
+        public Builder vehicleProbability(double p) { this.vehicleProbability = p; return this; }
+
+        public Builder behaviour(Behaviour behaviour) { return behaviour(behaviour.name()); }
+
+        /**
+         * @param name The name of a strategy registered in Behaviours, or
+         *        of a class implementing BehaviourStrategy.
+         * @return This builder.
+         * @throws IllegalArgumentException If there is no such strategy.
+         */
+        public Builder behaviour(String name) { this.behaviour = Behaviours.canonicalName(name); return this; }
+
+        public Builder signal(SignalType signal) { this.signal = signal; return this; }
+
+        public Builder storage(StorageType storage) { this.storage = storage; return this; }
+
+        public Builder storageFile(String file) { this.storageFile = file; return this; }
+
+        public Builder evaporationPeriod(int steps) { this.evaporationPeriod = steps; return this; }
+
+        public Builder showCrumbs(boolean showCrumbs) { this.showCrumbs = showCrumbs; return this; }
+
+        /**
+         * Set a value given by name, as on the command line, e.g.
+         * set("seed", "133") or set("behaviour", "simple").
+         * @param name One of steps, seed, width, depth, clusters, rocks,
+         *        std, obstacles, vehicles, behaviour, signal, storage,
+         *        storagefile, evaporation or crumbs.
+         * @param value The value as text.
+         * @return This builder.
+         * @throws IllegalArgumentException If the name is unknown or the
+         *         value cannot be read.
+         */
+        public Builder set(String name, String value)
+        {
+            if (name.equals("steps")) {
+                return length(Integer.parseInt(value));
+            } else if (name.equals("seed")) {
+                return seed(Integer.parseInt(value));
+            } else if (name.equals("width")) {
+                return width(Integer.parseInt(value));
+            } else if (name.equals("depth")) {
+                return depth(Integer.parseInt(value));
+            } else if (name.equals("clusters")) {
+                return rockClusters(Integer.parseInt(value));
+            } else if (name.equals("rocks")) {
+                return rockLocations(Integer.parseInt(value));
+            } else if (name.equals("std")) {
+                return rockClusterStd(Double.parseDouble(value));
+            } else if (name.equals("obstacles")) {
+                return obstacleProbability(Double.parseDouble(value));
+            } else if (name.equals("vehicles")) {
+                return vehicleProbability(Double.parseDouble(value));
+            } else if (name.equals("behaviour")) {
+                return behaviour(value);
+            } else if (name.equals("signal")) {
+                return signal(SignalType.valueOf(value.toUpperCase()));
+            } else if (name.equals("storage")) {
+                return storage(StorageType.valueOf(value.toUpperCase()));
+            } else if (name.equals("storagefile")) {
+                return storageFile(value);
+            } else if (name.equals("evaporation")) {
+                return evaporationPeriod(Integer.parseInt(value));
+            } else if (name.equals("crumbs")) {
+                return showCrumbs(Boolean.parseBoolean(value));
+            } else {
+                throw new IllegalArgumentException("Unknown parameter " + name);
+            }
+        }
+
+        /**
+         * The rocks are placed at distinct locations, and the mothership
+         * lands on a free one away from the last row and column, so a field
+         * must have more such locations than rocks. A field whose sides are
+         * not positive is replaced with the default one by the simulator,
+         * and is not checked here.
+         * @return The configuration holding the values set so far.
+         * @throws IllegalArgumentException If the field has no room for
+         *         the rocks and the mothership, or rocks are asked for
+         *         without any cluster to put them in.
+         */
+        public SimulationConfig build()
+        {
+            if (rockLocations < 0) {
+                throw new IllegalArgumentException("Negative number of rocks " + rockLocations);
+            }
+            if (rockLocations > 0 && rockClusters <= 0) {
+                throw new IllegalArgumentException("The rocks need at least one cluster");
+            }
+            if (width > 0 && depth > 0 && rockLocations >= (long) (width - 1) * (depth - 1)) {
+                throw new IllegalArgumentException("A " + width + " x " + depth + " field has no room for "
+                        + rockLocations + " rocks and the mothership");
+            }
+            return new SimulationConfig(this);
+        }
+    }
+}
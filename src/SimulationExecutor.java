@@ -0,0 +1,248 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the work of an interactive session, one task at a time, on a
+ * single thread of its own, so that a user interface never steps a
+ * simulation itself and two runs can never step the same simulation at
+ * once. A task submitted while another is still going is refused.
+ *
+ * A run of many steps can be paused, resumed and cancelled between steps.
+ * It either keeps to a target number of steps per second, showing every
+ * step, or runs as fast as it can, showing only the last step of each
+ * batch of steps. Batches grow until each takes about as long as a frame
+ * of the view, so little time goes on showing steps that nobody sees.
+ */
+final class SimulationExecutor
+{
+    // How long a batch of steps should take when running as fast as possible.
+    private static final long BATCH_NANOS = TimeUnit.MILLISECONDS.toNanos(33);
+
+    /**
+     * Told when a task has finished, on the executor's thread.
+     */
+    interface Listener
+    {
+        /**
+         * @param failure What stopped the task early, or null if it
+         *        finished or was cancelled.
+         */
+        void finished(RuntimeException failure);
+    }
+
+    private final ExecutorService executor;
+    // Whether a task has been submitted and not yet finished.
+    private boolean busy;
+    private boolean paused;
+    private volatile boolean cancelled;
+    // The target rate of the run, or 0 to run as fast as possible.
+    private volatile double stepsPerSecond;
+
+    /**
+     * Create an executor with its own thread, which does not keep the
+     * application running.
+     */
+    SimulationExecutor()
+    {
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "simulation");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Carry out a task, such as setting up a simulation, unless another
+     * is still going.
+     * @param task The task.
+     * @param listener Told when the task has finished, or null.
+     * @return Whether the task was accepted.
+     */
+    public synchronized boolean submit(final Runnable task, final Listener listener)
+    {
+        if(busy) {
+            return false;
+        }
+        busy = true;
+        cancelled = false;
+        paused = false;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                RuntimeException failure = null;
+                try {
+                    task.run();
+                }
+                catch (RuntimeException e) {
+                    failure = e;
+                }
+                finally {
+                    synchronized(SimulationExecutor.this) {
+                        busy = false;
+                        paused = false;
+                    }
+                }
+                if(listener != null) {
+                    listener.finished(failure);
+                }
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Run a simulation for a number of steps, unless another task is
+     * still going. The run stops early if it is cancelled or the
+     * simulation ceases to be viable.
+     * @param s The simulation.
+     * @param steps The number of steps to run for.
+     * @param listener Told when the run has finished, or null.
+     * @return Whether the run was accepted.
+     */
+    public boolean run(final Simulator s, final int steps, Listener listener)
+    {
+        return submit(new Runnable() {
+            @Override
+            public void run() {
+                runSteps(s, steps);
+            }
+        }, listener);
+    }
+
+    /**
+     * Step a simulation, on the executor's thread.
+     */
+    private void runSteps(Simulator s, int steps)
+    {
+        int remaining = steps;
+        int batch = 1;
+        long next = System.nanoTime();
+        while(remaining > 0 && !cancelled && s.isViable()) {
+            if(waitWhilePaused()) {
+                next = System.nanoTime();
+            }
+            if(cancelled) {
+                break;
+            }
+            double rate = stepsPerSecond;
+            if(rate > 0) {
+                s.simulateOneStep();
+                remaining--;
+                next += (long) (1e9 / rate);
+                long delay = next - System.nanoTime();
+                if(delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                else {
+                    // Too slow to keep up: do not try to catch up later.
+                    next = System.nanoTime();
+                }
+            }
+            else {
+                int n = Math.min(batch, remaining);
+                long start = System.nanoTime();
+                s.simulateBatch(n);
+                remaining -= n;
+                if(System.nanoTime() - start < BATCH_NANOS && batch < Integer.MAX_VALUE / 2) {
+                    batch *= 2;
+                }
+                else if(batch > 1) {
+                    batch /= 2;
+                }
+            }
+        }
+    }
+
+    /**
+     * Wait until the run is resumed or cancelled, if it is paused.
+     * @return Whether it was paused.
+     */
+    private synchronized boolean waitWhilePaused()
+    {
+        boolean waited = false;
+        while(paused && !cancelled) {
+            waited = true;
+            try {
+                wait();
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancelled = true;
+            }
+        }
+        return waited;
+    }
+
+    /**
+     * Pause the task going, after the current step or batch.
+     */
+    public synchronized void pause()
+    {
+        if(busy) {
+            paused = true;
+        }
+    }
+
+    /**
+     * Carry on with a paused task.
+     */
+    public synchronized void resume()
+    {
+        paused = false;
+        notifyAll();
+    }
+
+    /**
+     * Stop the task going, after the current step or batch.
+     */
+    public synchronized void cancel()
+    {
+        cancelled = true;
+        notifyAll();
+    }
+
+    /**
+     * @return Whether a task has been submitted and not yet finished.
+     */
+    public synchronized boolean isBusy()
+    {
+        return busy;
+    }
+
+    /**
+     * @return Whether the task going is paused.
+     */
+    public synchronized boolean isPaused()
+    {
+        return paused;
+    }
+
+    /**
+     * Set the speed of runs, which may be changed while one is going.
+     * @param stepsPerSecond The number of steps to run per second,
+     *        showing each, or 0 to run as fast as possible.
+     * @throws IllegalArgumentException If the number is negative.
+     */
+    public void setStepsPerSecond(double stepsPerSecond)
+    {
+        if(stepsPerSecond < 0 || Double.isNaN(stepsPerSecond)) {
+            throw new IllegalArgumentException("The number of steps per second cannot be " + stepsPerSecond);
+        }
+        this.stepsPerSecond = stepsPerSecond;
+    }
+
+    /**
+     * Cancel the task going and stop the thread once it has finished.
+     */
+    public void shutdown()
+    {
+        cancel();
+        executor.shutdown();
+    }
+}
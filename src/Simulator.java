@@ -1,214 +1,663 @@
-
-import java.util.ArrayList;
-import java.util.Iterator;
-
-
-/**
- * A simulator simulator for Steels'(1990) Mars exploration paradigm, based on a toroidal field
- * containing rocks and obstacles.
- * 
- * @author Maria Chli
- * @version 2009.10.31
- */
-public class Simulator
-{
-    // Lists of entities in the field. Separate lists are kept for ease of iteration.
-    private ArrayList<Rock> rocks;
-    //private ArrayList<Obstacle> obstacles;
-    private ArrayList<Vehicle> vehicles;
-    private Mothership mothership;
-    // The current state of the field.
-    private Field field;
-    // The current step of the simulation.
-    private int step;
-    // A graphical view of the simulation.
-    private SimulatorView view;
-    
-    /**
-     * Construct a simulation field with default size.
-     */
-    public Simulator()
-    {
-        this(ModelConstants.DEFAULT_DEPTH, ModelConstants.DEFAULT_WIDTH);
-    }
-    
-    /**
-     * Create a simulation field with the given size.
-     * @param depth Depth of the field. Must be greater than zero.
-     * @param width Width of the field. Must be greater than zero.
-     */
-    public Simulator(int depth, int width)
-    {
-        if(width <= 0 || depth <= 0) {
-            System.out.println("The dimensions must be greater than zero.");
-            System.out.println("Using default values.");
-            depth = ModelConstants.DEFAULT_DEPTH;
-            width = ModelConstants.DEFAULT_WIDTH;
-        }
-        
-        rocks = new ArrayList<Rock>();
-        //obstacles = new ArrayList<Obstacle>();
-        vehicles = new ArrayList<Vehicle>();
-        field = new Field(depth, width);
-        
-
-        // Create a view of the state of each location in the field.
-        view = new SimulatorView(depth, width,this);
-        view.setColor(Rock.class, ModelConstants.rockColor);
-        view.setColor(Obstacle.class, ModelConstants.obstacleColor);
-        view.setColor(Vehicle.class, ModelConstants.vehicleColor);
-        view.setColor(Mothership.class, ModelConstants.mothershipColor);
-        
-        // Setup a valid starting point.
-        reset();
-    }
-    
-    /**
-     * Run the simulation from its current state for a reasonably long period,
-     * e.g. 500 steps.
-     */
-    public void runLongSimulation()
-    {
-        simulate(500);
-    }
-    
-    /**
-     * Run the simulation from its current state for the given number of steps.
-     * Stop before the given number of steps if it ceases to be viable.
-     * @param numSteps The number of steps to run for.
-     */
-    public void simulate(int numSteps)
-    {
-        for(int tick = 1; tick <= numSteps && view.isViable(field); tick++) {
-            simulateOneStep();
-        }
-    }
-    
-    /**
-     * Run the simulation from its current state for a single step.
-     * Iterate over the whole field updating the state of each
-     * vehicle.
-     */
-    public void simulateOneStep()
-    {
-        step++;
-		Field tempField = field.cloneField();
-	
-		ArrayList<Rock> rocksToRemove = new ArrayList<Rock>();  
-		
-       for(Iterator<Vehicle> it = vehicles.iterator(); it.hasNext(); ) {
-            Vehicle v = it.next();
-            v.act(tempField,mothership,rocksToRemove);
-       }
-   		
-       for(Iterator<Rock> it = rocksToRemove.iterator(); it.hasNext(); ) {
-       		Rock r = it.next();
-       		//tempField.clearLocation(r.getLocation());
-       		rocks.remove(r);
-       }
-                 
-      field = tempField;
-      view.showStatus(step, field);
-      
-      // Print the number of steps taken to move all rock samples to the mothership
-      if (mothership.getRockCount() == 300) {
-    	  	System.out.println("Step: " + step);
-      }
-    }
-        
-    /**
-     * Reset the simulation to a starting position.
-     */
-    public void reset()
-    {
-        step = 0;
-        populate();
-        randomLandMothership();
-        // Show the starting state in the view.
-        view.showStatus(step, field);
-    }
-    
-    /**
-     * Randomly populate the field with obstacles and rocks.
-     */
-    private void populate()
-    {
-        field.clear();
-
-        Location rockLocations[];
-    	
-	    	rockLocations = ClusterGenerator.generateClusters(ModelConstants.ROCK_CLUSTERS, 
-	    			ModelConstants.ROCK_LOCATIONS, field.getWidth(), field.getDepth(), 
-	    			ModelConstants.ROCK_CLUSTER_STD);
-	    	
-	    	for(int i=0; i < rockLocations.length; i++)
-	    	{
-	            Location location = rockLocations[i];
-	            Rock r = new Rock(location);
-	            field.place(r,location);
-	            rocks.add(r);    		
-	    	}
-    	 		
- 		double obsProb = ModelConstants.OBSTACLE_CREATION_PROBABILITY;
- 		double vehProb = ModelConstants.OBSTACLE_CREATION_PROBABILITY + ModelConstants.VEHICLE_CREATION_PROBABILITY;
- 		
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-            	Location location = new Location(row, col);
-            	if(field.getObjectAt(location)==null)
-            	{
-                	double ran = ModelConstants.random.nextDouble();
-	                if(ran <= obsProb) {
-	                    Obstacle o = new Obstacle(location);
-	                    field.place(o,location);
-	                    //obstacles.add(o);
-	                }
-	                else if(ran > obsProb && ran <= vehProb) {
-	                   	//location = new Location(20, 20);
-	                    Vehicle v = new Vehicle(location);
-	                    //v.carryingSample = true;
-	                    field.place(v,location);
-	                    vehicles.add(v);
-	                }
-	                // else leave the location empty.
-            	}
-            }
-        }
-        
-    }
-    
-   
-    	
-   /**
-     * Land the mothership at a random location
-     */
-    public void randomLandMothership(){
-    	int x = ModelConstants.random.nextInt(field.getDepth()-1);
-    	int y = ModelConstants.random.nextInt(field.getWidth()-1);
-    	Location l = new Location(x,y);
-    	Entity e = field.getObjectAt(l);
-    	while (e!=null){
-    		x = ModelConstants.random.nextInt(field.getDepth()-1);
-    		y = ModelConstants.random.nextInt(field.getWidth()-1);
-    		l = new Location(x,y);
-    		e = field.getObjectAt(l);
-    	}
-    	Mothership m = new Mothership(l);
-    	field.place(m,l);
-    	mothership = m;
-    	mothership.emitSignal(field);
-    	view.showStatus(step, field);
-    }   	
-    
-    public void closeView()
-    {
-    	this.view.setVisible(false);
-    }
-    
-    public static void main(String[] args){
-    	Simulator s = new Simulator();
-		//s.randomLandMothership();
-		s.simulate(11000);
-		
-    }
-}
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+
+/**
+ * A simulator simulator for Steels'(1990) Mars exploration paradigm, based on a toroidal field
+ * containing rocks and obstacles.
+ * 
+ * @author Maria Chli
+ * @version 2009.10.31
+ */
+public class Simulator
+{
+    // The size of the square tiles in which the field is populated.
+    private static final int TILE_SIZE = 64;
+    
+    // The parameters of this simulation.
+    private SimulationConfig config;
+    // The simulation's streams of random numbers, and its own stream
+    // used while setting up.
+    private RandomStreams streams;
+    private SplittableRandom random;
+    // The rocks and the obstacles are known by the kinds of their cells in
+    // the field, and the vehicles by the fleet.
+    private Fleet fleet;
+    private Mothership mothership;
+    // The current state of the field.
+    private Field field;
+    // A second buffer holding the same state, into which the next step is computed.
+    private Field nextField;
+    // The current step of the simulation.
+    private int step;
+    // An observer of the simulation, e.g. a graphical view; null when headless.
+    private SimulatorObserver observer;
+    // Statistics used to decide whether the simulation is still viable.
+    private FieldStats stats;
+    // The step at which all rock samples reached the mothership, or -1.
+    private int completionStep;
+    // The pool on which vehicles plan their moves in parallel, or null
+    // to step the vehicles one at a time.
+    private ForkJoinPool pool;
+    // The planner used when the vehicles plan on this thread.
+    private Fleet.Planner planner = new Fleet.Planner();
+    // The log the vehicles' actions are recorded in, or null.
+    private EventLog events;
+    // Whether steps are being run without showing them to the observer.
+    private boolean batching;
+    
+    /**
+     * Construct a simulation field with default size.
+     */
+    public Simulator()
+    {
+        this(SimulationConfig.defaults());
+    }
+    
+    /**
+     * Create a simulation field with the given size, shown in a
+     * graphical view.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     */
+    public Simulator(int depth, int width)
+    {
+        this(SimulationConfig.defaults().toBuilder().depth(depth).width(width).build());
+    }
+    
+    /**
+     * Create a simulation with the given configuration, shown in a
+     * graphical view.
+     * @param config The parameters of the simulation.
+     */
+    public Simulator(SimulationConfig config)
+    {
+        this(config, null);
+        
+        // Create a view of the state of each location in the field.
+        observer = new SimulatorView(field.getDepth(), field.getWidth(), this);
+        observer.showStatus(step, field);
+    }
+    
+    /**
+     * Create a simulation with the given configuration.
+     * No AWT classes are used unless the observer needs them, so a
+     * simulator without an observer can run on a machine with no display.
+     * Simulations share no state, so several can run at once in one JVM.
+     * @param config The parameters of the simulation.
+     * @param observer Observer of each step, or null to run headless.
+     */
+    public Simulator(SimulationConfig config, SimulatorObserver observer)
+    {
+        this(config, observer, null);
+    }
+    
+    /**
+     * Carry on a simulation from a snapshot, exactly as if it had not
+     * been stopped. No steps are replayed.
+     * @param checkpoint The snapshot of the simulation.
+     * @param observer Observer of each step, or null to run headless.
+     */
+    public Simulator(Checkpoint checkpoint, SimulatorObserver observer)
+    {
+        this(checkpoint.getConfig(), observer, checkpoint);
+    }
+    
+    /**
+     * Create a simulation, either at its start or from a snapshot.
+     * @param config The parameters of the simulation.
+     * @param observer Observer of each step, or null to run headless.
+     * @param checkpoint The snapshot to carry on from, or null to start afresh.
+     */
+    private Simulator(SimulationConfig config, SimulatorObserver observer, Checkpoint checkpoint)
+    {
+        if(config.getWidth() <= 0 || config.getDepth() <= 0) {
+            System.out.println("The dimensions must be greater than zero.");
+            System.out.println("Using default values.");
+            config = config.toBuilder().depth(ModelConstants.DEFAULT_DEPTH)
+                                       .width(ModelConstants.DEFAULT_WIDTH).build();
+        }
+        
+        this.config = config;
+        streams = new RandomStreams(config.getSeed());
+        random = streams.forSimulation();
+        fleet = new Fleet(config.getStrategy(), streams, config.getWidth());
+        field = new Field(config.getDepth(), config.getWidth(), random, makeStore(config));
+        if(config.getSignal() == SignalType.DISTANCE) {
+            field.setSignal(new DistanceSignal(config.getDepth(), config.getWidth()));
+        }
+        stats = new FieldStats();
+        this.observer = observer;
+        
+        if(checkpoint == null) {
+            // Setup a valid starting point.
+            reset();
+        }
+        else {
+            restore(checkpoint);
+        }
+    }
+    
+    /**
+     * @param config The parameters of a simulation.
+     * @return An empty store of the kind the configuration asks for.
+     */
+    private static CellStore makeStore(SimulationConfig config)
+    {
+        long size = (long) config.getDepth() * config.getWidth();
+        if(size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The field has too many cells: " + size);
+        }
+        if(config.getStorage() == StorageType.CHUNKED) {
+            return new ChunkedCellStore(config.getDepth(), config.getWidth());
+        }
+        if(config.getStorage() == StorageType.OFF_HEAP) {
+            if(config.getStorageFile() != null) {
+                return new OffHeapCellStore((int) size, config.getStorageFile());
+            }
+            return new OffHeapCellStore((int) size);
+        }
+        return new ArrayCellStore((int) size);
+    }
+    
+    /**
+     * Run the simulation from its current state for a reasonably long period,
+     * e.g. 500 steps.
+     */
+    public void runLongSimulation()
+    {
+        simulate(500);
+    }
+    
+    /**
+     * Run the simulation from its current state until every rock sample
+     * has been returned to the mothership, for at most the given number
+     * of steps. Stop earlier if it ceases to be viable.
+     * @param numSteps The largest number of steps to run for.
+     */
+    public void simulateUntilComplete(int numSteps)
+    {
+        for(int tick = 1; tick <= numSteps && !isComplete() && isViable(); tick++) {
+            simulateOneStep();
+        }
+    }
+    
+    /**
+     * Run the simulation from its current state for the given number of steps.
+     * Stop before the given number of steps if it ceases to be viable.
+     * @param numSteps The number of steps to run for.
+     */
+    public void simulate(int numSteps)
+    {
+        for(int tick = 1; tick <= numSteps && isViable(); tick++) {
+            simulateOneStep();
+        }
+    }
+    
+    /**
+     * Run the simulation from its current state for the given number of
+     * steps, showing only the last of them to the observer. This saves
+     * the cost of showing steps that go by too fast to be seen.
+     * Stop before the given number of steps if it ceases to be viable.
+     * @param numSteps The number of steps to run for.
+     */
+    public void simulateBatch(int numSteps)
+    {
+        batching = true;
+        try {
+            simulate(numSteps);
+        }
+        finally {
+            batching = false;
+        }
+        if(observer != null) {
+            observer.showStatus(step, field);
+        }
+    }
+    
+    /**
+     * Run the simulation from its current state for a single step.
+     * Iterate over the whole field updating the state of each
+     * vehicle.
+     */
+    public void simulateOneStep()
+    {
+        step++;
+
+       // Plan against the unchanging current field, with or without the
+       // pool, in order of the vehicles' cells so that the field is read
+       // from one end to the other, then settle any conflicts by applying
+       // the plans in order of the vehicles' numbers.
+       int[] order = fleet.inCellOrder(step);
+       if(pool == null) {
+           fleet.planAll(order, 0, fleet.size(), field, step, planner);
+       }
+       else {
+           // The way home is worked out lazily, so work it out on this
+           // thread for every vehicle that will need it.
+           for(int v = 0; v < fleet.size(); v++) {
+                if(fleet.isCarrying(v)) {
+                    field.nextHop(fleet.getCell(v));
+                }
+           }
+           pool.invoke(new PlanTask(fleet, order, field, step, 0, fleet.size()));
+       }
+       for(int v = 0; v < fleet.size(); v++) {
+            fleet.apply(v,nextField,mothership,events);
+       }
+       if(events != null) {
+           events.endStep();
+       }
+
+      // Swap the buffers and bring the old one up to date with this step's changes.
+      Field previousField = field;
+      field = nextField;
+      nextField = previousField;
+      field.copyChangesTo(nextField);
+      evaporate();
+      if(observer != null && !batching) {
+          observer.showStatus(step, field);
+      }
+      
+      // Record the number of steps taken to move all rock samples to the mothership
+      if (completionStep < 0 && mothership.getRockCount() >= config.getRockLocations()) {
+    	  	completionStep = step;
+    	  	if(observer != null) {
+    	  		System.out.println("Step: " + step);
+    	  	}
+      }
+    }
+    
+    /**
+     * Let the crumbs evaporate if this step is one at which they do.
+     * Evaporation only advances a clock in each buffer, so it costs the
+     * same however large the field is.
+     */
+    private void evaporate()
+    {
+        int period = config.getEvaporationPeriod();
+        if(period > 0 && step % period == 0) {
+            field.reduceCrumbs();
+            nextField.reduceCrumbs();
+        }
+    }
+    
+    /**
+     * Record what the vehicles do in every following step, or stop
+     * recording. With a checkpoint of the current step the log is enough
+     * to rebuild any later step with replay. Moving the mothership is not
+     * recorded, so take a new checkpoint and log after doing so.
+     * @param events The log to record in, which must start at the current
+     *        step, or null to stop recording. The caller closes it.
+     */
+    public void setEventLog(EventLog events)
+    {
+        this.events = events;
+    }
+    
+    /**
+     * Bring the simulation forward by carrying out the actions recorded
+     * in a log, rather than by simulating. Nothing is planned and no
+     * random numbers are drawn, so this is much faster than simulating,
+     * and the simulation can carry on from the step reached as usual.
+     * @param log The log, read up to the current step.
+     * @param toStep The step to stop at. Replay stops earlier at the end
+     *        of the log.
+     * @throws IOException If the log cannot be read, or was not recorded
+     *         by this simulation.
+     */
+    public void replay(EventLog.Reader log, int toStep) throws IOException
+    {
+        int width = field.getWidth();
+        if(log.getDepth() != field.getDepth() || log.getWidth() != width || log.getStep() != step) {
+            throw new IOException("The event log does not start at step " + step + " of this simulation");
+        }
+        int kind = 0;
+        while(step < toStep && (kind = log.next()) >= 0) {
+            if(kind == EventLog.STEP) {
+                step++;
+                field.copyChangesTo(nextField);
+                evaporate();
+                if (completionStep < 0 && mothership.getRockCount() >= config.getRockLocations()) {
+                    completionStep = step;
+                }
+                continue;
+            }
+            int v = log.getVehicle();
+            if(v >= fleet.size()) {
+                throw new IOException("The event log names vehicle " + v
+                                      + ", which is not in this simulation");
+            }
+            int at = fleet.getCell(v);
+            int cell = log.getCell(at);
+            if(kind == EventLog.MOVE) {
+                field.place(null, at);
+                field.place(fleet.get(v), cell);
+                fleet.setCell(v, cell);
+            }
+            else if(kind == EventLog.DELIVER) {
+                mothership.incrementRockCount();
+                fleet.setCarrying(v, false);
+                field.touch(at);
+            }
+            else if(kind == EventLog.ROCK) {
+                if(field.getCellType(cell) != Field.ROCK) {
+                    throw new IOException("The event log picks up a rock at step " + (step + 1)
+                                          + " where there is none");
+                }
+                field.place(null, cell);
+                fleet.setCarrying(v, true);
+                field.touch(at);
+            }
+            else if(kind == EventLog.CRUMB) {
+                field.pickUpACrumb(cell);
+            }
+            else {
+                field.dropCrumbs(cell, log.getQuantity());
+            }
+        }
+        if(observer != null) {
+            observer.showStatus(step, field);
+        }
+    }
+    
+    /**
+     * Choose how the vehicles are stepped. All vehicles plan against the
+     * field as it was at the start of the step, on this thread without a
+     * pool or in parallel with one, and the plans are then applied in list
+     * order: the first vehicle to claim a cell or a rock gets it, and the
+     * others stay where they are. The results then depend only on the seed,
+     * not on whether there is a pool or on the number of its threads: a run
+     * without a pool gives the same trajectories as a pool of sixty-four.
+     * The signal is also computed on the pool if it can be split.
+     * @param pool The pool to plan on, or null to step the vehicles serially.
+     */
+    public void setPool(ForkJoinPool pool)
+    {
+        this.pool = pool;
+        field.getSignal().setPool(pool);
+    }
+    
+    /**
+     * Determine whether the simulation should continue to run.
+     * @return true If there is more than one type of entity present.
+     */
+    public boolean isViable()
+    {
+        return stats.isViable(field);
+    }
+    
+    /**
+     * @return The parameters of this simulation.
+     */
+    public SimulationConfig getConfig()
+    {
+        return config;
+    }
+    
+    /**
+     * @return The current step of the simulation.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+    
+    /**
+     * @return The current state of the field.
+     */
+    public Field getField()
+    {
+        return field;
+    }
+    
+    /**
+     * @return The mothership the vehicles return their samples to.
+     */
+    public Mothership getMothership()
+    {
+        return mothership;
+    }
+    
+    /**
+     * @return Whether every rock sample has been returned to the mothership.
+     */
+    public boolean isComplete()
+    {
+        return completionStep >= 0;
+    }
+    
+    /**
+     * @return The step at which every rock sample had been returned to
+     *         the mothership, or -1 if that has not happened yet.
+     */
+    public int getCompletionStep()
+    {
+        return completionStep;
+    }
+        
+    /**
+     * Reset the simulation to a starting position.
+     */
+    public void reset()
+    {
+        step = 0;
+        completionStep = -1;
+        populate();
+        randomLandMothership();
+        // Show the starting state in the view.
+        if(observer != null) {
+            observer.showStatus(step, field);
+        }
+    }
+    
+    /**
+     * Take a snapshot of the simulation, e.g. to write it to a file.
+     * The snapshot holds its own copy of the field, so the simulation
+     * can carry on while it is written. Call it between steps.
+     * @return The snapshot.
+     */
+    public Checkpoint checkpoint()
+    {
+        int[] vehicleCells = new int[fleet.size()];
+        boolean[] carrying = new boolean[fleet.size()];
+        for(int i = 0; i < fleet.size(); i++) {
+            vehicleCells[i] = fleet.getCell(i);
+            carrying[i] = fleet.isCarrying(i);
+        }
+        Location m = mothership.getLocation();
+        return new Checkpoint(config, step, completionStep, m.getRow() * field.getWidth() + m.getCol(),
+                              mothership.getRockCount(), field.cloneField(), vehicleCells, carrying);
+    }
+    
+    /**
+     * Set the simulation to the state held by a snapshot.
+     * @param checkpoint The snapshot.
+     */
+    private void restore(Checkpoint checkpoint)
+    {
+        int width = field.getWidth();
+        checkpoint.restoreCells(field);
+        for(int i = 0; i < checkpoint.getVehicleCount(); i++) {
+            int cell = checkpoint.getVehicleCell(i);
+            field.place(fleet.add(cell, checkpoint.isCarrying(i)), cell);
+        }
+        int cell = checkpoint.getMothershipCell();
+        mothership = new Mothership(new Location(cell / width, cell % width), checkpoint.getRocksReturned());
+        field.place(mothership, cell);
+        mothership.emitSignal(field);
+        nextField = field.cloneField();
+        field.forgetChanges();
+        step = checkpoint.getStep();
+        completionStep = checkpoint.getCompletionStep();
+        if(observer != null) {
+            observer.showStatus(step, field);
+        }
+    }
+    
+    /**
+     * Randomly populate the field with obstacles and rocks.
+     */
+    private void populate()
+    {
+        field.clear();
+
+        Location rockLocations[];
+    	
+	    	rockLocations = ClusterGenerator.generateClusters(config, random);
+	    	
+	    	for(int i=0; i < rockLocations.length; i++)
+	    	{
+	            Location location = rockLocations[i];
+	            field.place(new Rock(location),location);
+	    	}
+    	 		
+ 		double obsProb = config.getObstacleProbability();
+ 		double vehProb = config.getObstacleProbability() + config.getVehicleProbability();
+ 		
+        // Each tile of the field draws from its own stream, so what a tile
+        // holds does not depend on the order in which tiles are populated.
+        int tile = 0;
+        for(int top = 0; top < field.getDepth(); top += TILE_SIZE) {
+            for(int left = 0; left < field.getWidth(); left += TILE_SIZE) {
+                SplittableRandom tileRandom = streams.forTile(tile++);
+                int bottom = Math.min(top + TILE_SIZE, field.getDepth());
+                int right = Math.min(left + TILE_SIZE, field.getWidth());
+                for(int row = top; row < bottom; row++) {
+                    for(int col = left; col < right; col++) {
+                    	int index = row * field.getWidth() + col;
+                    	if(field.getCellType(index) == Field.EMPTY)
+                    	{
+                        	double ran = tileRandom.nextDouble();
+        	                if(ran <= obsProb) {
+        	                    Obstacle o = new Obstacle(new Location(row, col));
+        	                    field.place(o, index);
+        	                    //obstacles.add(o);
+        	                }
+        	                else if(ran > obsProb && ran <= vehProb) {
+        	                    Vehicle v = fleet.add(index, false);
+        	                    field.place(v, index);
+        	                }
+        	                // else leave the location empty.
+                    	}
+                    }
+                }
+            }
+        }
+        
+    }
+    
+   
+    	
+   /**
+     * Land the mothership at a random location
+     */
+    public void randomLandMothership(){
+    	int x = random.nextInt(field.getDepth()-1);
+    	int y = random.nextInt(field.getWidth()-1);
+    	Location l = new Location(x,y);
+    	Entity e = field.getObjectAt(l);
+    	while (e!=null){
+    		x = random.nextInt(field.getDepth()-1);
+    		y = random.nextInt(field.getWidth()-1);
+    		l = new Location(x,y);
+    		e = field.getObjectAt(l);
+    	}
+    	Mothership m = new Mothership(l);
+    	field.place(m,l);
+    	mothership = m;
+    	mothership.emitSignal(field);
+    	nextField = field.cloneField();
+    	field.forgetChanges();
+    	if(observer != null) {
+    		observer.showStatus(step, field);
+    	}
+    }   	
+    
+    /**
+     * Move the mothership to another location between steps. The vehicles
+     * follow its new signal from the next step on. Only the two cells and
+     * the signal terms change, so this costs little even on a large field.
+     * @param l Where to land the mothership. The location must be empty.
+     * @throws IllegalArgumentException If the location is not empty.
+     */
+    public void relocateMothership(Location l)
+    {
+        if(field.getObjectAt(l) != null) {
+            throw new IllegalArgumentException("Cannot land the mothership on " + l);
+        }
+        field.clearLocation(mothership.getLocation());
+        mothership.setLocation(l);
+        field.place(mothership, l);
+        mothership.emitSignal(field);
+        field.copyChangesTo(nextField);
+        if(observer != null) {
+            observer.showStatus(step, field);
+        }
+    }
+    
+    public void closeView()
+    {
+    	if(observer != null) {
+    		this.observer.close();
+    	}
+    }
+    
+    /**
+     * Plans the moves of a range of vehicles, splitting the range
+     * between the threads of the pool.
+     */
+    private static class PlanTask extends RecursiveAction
+    {
+    	static final long serialVersionUID = 1L;
+        // Ranges no longer than this are planned on a single thread.
+        private static final int THRESHOLD = 256;
+        
+        private Fleet fleet;
+        private int[] order;
+        private Field field;
+        private int step;
+        private int from, to;
+        
+        /**
+         * @param fleet All vehicles in the simulation.
+         * @param order The numbers of the vehicles in the order to plan them.
+         * @param field The field to plan against; it is only read.
+         * @param step The step being planned.
+         * @param from Position in the order of the first vehicle in the range.
+         * @param to Position after the last vehicle in the range.
+         */
+        PlanTask(Fleet fleet, int[] order, Field field, int step, int from, int to)
+        {
+            this.fleet = fleet;
+            this.order = order;
+            this.field = field;
+            this.step = step;
+            this.from = from;
+            this.to = to;
+        }
+        
+        @Override
+        protected void compute()
+        {
+            if(to - from <= THRESHOLD) {
+                fleet.planAll(order, from, to, field, step, new Fleet.Planner());
+            }
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PlanTask(fleet, order, field, step, from, middle),
+                          new PlanTask(fleet, order, field, step, middle, to));
+            }
+        }
+    }
+    
+    public static void main(String[] args){
+    	Simulator s = new Simulator();
+		//s.randomLandMothership();
+		s.simulate(11000);
+		
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * An observer of a running simulation, such as a graphical view.
+ * A Simulator without an observer runs headless and never loads
+ * any AWT classes.
+ */
+interface SimulatorObserver
+{
+    /**
+     * Show the current status of the field.
+     * @param step Which iteration step it is.
+     * @param field The field to represent.
+     */
+    void showStatus(int step, Field field);
+    
+    /**
+     * Stop observing the simulation, e.g. hide a window.
+     */
+    void close();
+}
@@ -1,8 +1,10 @@
 
 import java.awt.*;
 import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 import javax.swing.*;
-import java.util.HashMap;
 
 /**
  * A graphical view of the simulation grid.
@@ -11,6 +13,11 @@ import java.util.HashMap;
  * Colors for each type of species can be defined using the
  * setColor method.
  *
+ * The simulation thread only draws each step into a frame and hands it
+ * over; the event dispatch thread shows the latest frame at a fixed rate,
+ * skipping frames that came faster than that. Neither thread waits for
+ * the other.
+ *
  * (ITN) modified so that when window is closed the application terminates.
  * 
  * @author David J. Barnes and Michael Kolling
@@ -20,14 +27,30 @@ import java.util.HashMap;
  * @author Maria Chli
  * @version 01-11-2009	
  */
-public class SimulatorView extends JFrame
+public class SimulatorView extends JFrame implements SimulatorObserver
 {
 	static final long serialVersionUID = -3018063635072997091L;
     // Colors used for empty locations.
     private static final Color EMPTY_COLOR = Color.white;
 
+    //The colours
+    public static final Color rockColor = Color.orange;
+    public static final Color obstacleColor = Color.black;
+    public static final Color vehicleColor = Color.cyan;
+    public static final Color vehicleCarryingSampleColor = Color.blue;
+    public static final Color mothershipColor = Color.magenta;
+
     // Color used for objects that have no defined color.
     private static final Color UNKNOWN_COLOR = Color.gray;
+    // The colour of an empty location holding each number of crumbs,
+    // from white for none to red for nine or more.
+    private static final int[] CRUMB_COLORS = makeCrumbColors();
+    // The most frames shown per second.
+    private static final int FRAME_RATE = 30;
+    // The field is copied to the screen in square tiles of 32 by 32
+    // locations, as the chunks of ChunkedCellStore.
+    private static final int TILE_BITS = 5;
+    private static final int TILE_SIZE = 1 << TILE_BITS;
 
     private final String STEP_PREFIX = "Step: ";
     private final String POPULATION_PREFIX = "Pop.: ";
@@ -36,10 +59,28 @@ public class SimulatorView extends JFrame
     private FieldView fieldView;
     private Simulator s;
     
-    // A map for storing colors for participants in the simulation
-    private HashMap<Class, Color> colors;
+    // The colour of each kind of cell, as packed RGB, indexed by kind
+    private int[] colors;
     // A statistics object computing and storing simulation information
     private FieldStats stats;
+    // The changes recorded by the field last shown, or null
+    private DirtyCells watched;
+    private int carryingColor = vehicleCarryingSampleColor.getRGB();
+    // The field as of the last step, drawn by the simulation thread at
+    // one pixel per location, as packed RGB indexed by row * width + col
+    private int[] pixels;
+    // The frames passed from the simulation thread to the screen
+    private Frame[] frames;
+    private TripleBuffer<Frame> buffer;
+    // The number of tiles across the field, and whether each tile has been
+    // listed as changed in the frame being drawn
+    private int tilesAcross;
+    private boolean[] tileListed;
+    // The number of frames handed over, and of the frame last shown
+    private int handedOver;
+    private int shown;
+    // Shows the latest frame on the event dispatch thread
+    private Timer timer;
 
     /**
      * Create a view of the given width and height.
@@ -48,7 +89,13 @@ public class SimulatorView extends JFrame
     {
         this.s = s;
         stats = new FieldStats();
-        colors = new HashMap<Class, Color>();
+        colors = new int[Field.MOTHERSHIP + 1];
+        Arrays.fill(colors, UNKNOWN_COLOR.getRGB());
+        colors[Field.EMPTY] = EMPTY_COLOR.getRGB();
+        setColor(Rock.class, rockColor);
+        setColor(Obstacle.class, obstacleColor);
+        setColor(Vehicle.class, vehicleColor);
+        setColor(Mothership.class, mothershipColor);
 
         setTitle("Mars Explorer Simulation");
         stepLabel = new JLabel(STEP_PREFIX, JLabel.CENTER);
@@ -58,6 +105,20 @@ public class SimulatorView extends JFrame
         setLocation(100, 50);
         
         fieldView = new FieldView(height, width);
+        pixels = new int[height * width];
+        tilesAcross = (width + TILE_SIZE - 1) >> TILE_BITS;
+        tileListed = new boolean[tilesAcross * ((height + TILE_SIZE - 1) >> TILE_BITS)];
+        frames = new Frame[] {new Frame(height, width, tileListed.length),
+                              new Frame(height, width, tileListed.length),
+                              new Frame(height, width, tileListed.length)};
+        buffer = new TripleBuffer<Frame>(frames[0], frames[1], frames[2]);
+        timer = new Timer(1000 / FRAME_RATE, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                showLatestFrame();
+            }
+        });
+        timer.start();
 
         Container contents = getContentPane();
         contents.add(stepLabel, BorderLayout.NORTH);
@@ -101,73 +162,161 @@ public class SimulatorView extends JFrame
     private void exitApp() {
 	System.exit(0);
     }
+
+    /**
+     * Hide the view when the simulation is no longer observed.
+     */
+    @Override
+    public void close()
+    {
+        timer.stop();
+        setVisible(false);
+    }
+
+    /**
+     * Stop showing frames and release the window.
+     */
+    @Override
+    public void dispose()
+    {
+        timer.stop();
+        super.dispose();
+    }
     
     /**
      * Define a color to be used for a given class of actor.
+     * Classes that are not stored in a field are ignored.
      */
     public void setColor(Class actorClass, Color color)
     {
-        colors.put(actorClass, color);
+        byte type = Field.cellTypeOf(actorClass);
+        if(type != Field.NO_TYPE) {
+            colors[type] = color.getRGB();
+            // Draw every cell again in the new colours.
+            watched = null;
+        }
     }
 
     /**
-     * Define a color to be used for a given class of actor.
+     * @return The colours of an empty location with 0, 1, 2... crumbs.
      */
-    private Color getColor(Class actorClass)
+    private static int[] makeCrumbColors()
     {
-        Color col = colors.get(actorClass);
-        if(col == null) {
-            // no color defined for this class
-            return UNKNOWN_COLOR;
-        }
-        else {
-            return col;
+        int[] crumbColors = new int[10];
+        for(int n = 0; n < crumbColors.length; n++) {
+            int shade = Math.max(0, Math.min(255, 255 - 20 * n));
+            crumbColors[n] = new Color(255, shade, shade).getRGB();
         }
+        return crumbColors;
     }
 
     /**
-     * Show the current status of the field.
+     * Show the current status of the field. This draws the field into a
+     * frame, which is shown later on the event dispatch thread.
      * @param step Which iteration step it is.
      * @param field The field to represent.
      */
+    @Override
     public void showStatus(int step, Field field)
     {
-        if(!isVisible())
-            setVisible(true);
-
-        stepLabel.setText(STEP_PREFIX + step);
-
-        stats.reset();
-        fieldView.preparePaint();
-            
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-            	Object actor = field.getObjectAt(row, col);
-                if(actor != null) {
-                    stats.incrementCount(actor.getClass());
-                    fieldView.drawMark(col, row, getColor(actor.getClass()));
-                    if(actor instanceof Vehicle)
-                    	if(((Vehicle)actor).carryingSample)
-                            fieldView.drawMark(col, row, ModelConstants.vehicleCarryingSampleColor);
+        // Each cell is one pixel of the image, written directly; the image
+        // is scaled up only when it is copied to the screen. Only the cells
+        // changed since the last call are drawn again, and only the tiles
+        // holding them are copied to the screen.
+        DirtyCells dirty = field.watchChanges();
+        boolean showCrumbs = s.getConfig().isShowCrumbs();
+        int width = field.getWidth();
+        Frame frame = buffer.getBack();
+        frame.allChanged = false;
+        frame.changedCount = 0;
+        if(dirty != watched || dirty.isAll()) {
+            watched = dirty;
+            for(int index = 0; index < pixels.length; index++) {
+                pixels[index] = colorOf(field, index, showCrumbs);
+            }
+            for(Frame f : frames) {
+                f.stale.markAll();
+            }
+            frame.allChanged = true;
+        }
+        else {
+            for(int i = 0; i < dirty.size(); i++) {
+                int index = dirty.get(i);
+                pixels[index] = colorOf(field, index, showCrumbs);
+                // Every frame falls behind by this cell.
+                for(Frame f : frames) {
+                    f.stale.mark(index);
                 }
-                else {
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
-                	if(ModelConstants.SHOW_CRUMBS){
-                    	//fieldView.drawNum((field.getCrumbQuantityAt(new Location(row,col))), col, row);
-                    	int numCrumbs = field.getCrumbQuantityAt(new Location(row,col));
-                    	numCrumbs = 255-20*numCrumbs;
-                    	numCrumbs = (numCrumbs<=255)?numCrumbs:255;
-                    	numCrumbs = (numCrumbs>=0)?numCrumbs:0;
-                    	fieldView.drawMark(col, row, new Color(255, numCrumbs, numCrumbs));
-                    }
+                int tile = (index / width >> TILE_BITS) * tilesAcross + (index % width >> TILE_BITS);
+                if(!tileListed[tile]) {
+                    tileListed[tile] = true;
+                    frame.changedTiles[frame.changedCount++] = tile;
                 }
-                
+            }
+            for(int i = 0; i < frame.changedCount; i++) {
+                tileListed[frame.changedTiles[i]] = false;
             }
         }
-        stats.countFinished();
+        dirty.clear();
 
-        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
-        fieldView.repaint();
+        // Bring the frame to be handed over up to date, copying only the
+        // cells that changed since it was last drawn.
+        DirtyCells stale = frame.stale;
+        if(stale.isAll()) {
+            System.arraycopy(pixels, 0, frame.pixels, 0, pixels.length);
+        }
+        else {
+            for(int i = 0; i < stale.size(); i++) {
+                int index = stale.get(i);
+                frame.pixels[index] = pixels[index];
+            }
+        }
+        stale.clear();
+        frame.step = step;
+        frame.population = POPULATION_PREFIX + stats.getPopulationDetails(field);
+        frame.number = ++handedOver;
+        buffer.publish();
+    }
+
+    /**
+     * Show the frame last handed over, if there is a new one. Called on
+     * the event dispatch thread.
+     */
+    private void showLatestFrame()
+    {
+        Frame frame = buffer.takeLatest();
+        if(frame == null) {
+            return;
+        }
+        if(!isVisible())
+            setVisible(true);
+        stepLabel.setText(STEP_PREFIX + frame.step);
+        population.setText(frame.population);
+        // After skipping frames, the changes they held must be copied too.
+        if(frame.number == shown + 1 && !frame.allChanged) {
+            fieldView.showFrame(frame.image, frame.changedTiles, frame.changedCount);
+        }
+        else {
+            fieldView.showFrame(frame.image, null, 0);
+        }
+        shown = frame.number;
+    }
+
+    /**
+     * @return The colour of a cell, as packed RGB.
+     */
+    private int colorOf(Field field, int index, boolean showCrumbs)
+    {
+        byte type = field.getCellType(index);
+        if(type == Field.EMPTY) {
+            return showCrumbs
+                    ? CRUMB_COLORS[Math.min(field.getCrumbQuantity(index), CRUMB_COLORS.length - 1)]
+                    : colors[Field.EMPTY];
+        }
+        if(type == Field.VEHICLE && ((Vehicle) field.getEntity(index)).isCarryingSample()) {
+            return carryingColor;
+        }
+        return colors[type];
     }
 
     /**
@@ -193,10 +342,8 @@ public class SimulatorView extends JFrame
         private final int GRID_VIEW_SCALING_FACTOR = 6;
 
         private int gridWidth, gridHeight;
-        private int xScale, yScale;
-        Dimension size;
-        private Graphics g;
-        private Image fieldImage;
+        // The image of the frame being shown.
+        private BufferedImage fieldImage;
 
         /**
          * Create a new FieldView component.
@@ -205,7 +352,6 @@ public class SimulatorView extends JFrame
         {
             gridHeight = height;
             gridWidth = width;
-            size = new Dimension(0, 0);
         }
 
         /**
@@ -219,64 +365,100 @@ public class SimulatorView extends JFrame
         }
         
         /**
-         * Prepare for a new round of painting. Since the component
-         * may be resized, compute the scaling factor again.
+         * Show the image of a frame, copying to the screen only the tiles
+         * that changed since the image shown before. Called on the event
+         * dispatch thread.
+         * @param image The image, at one pixel per location.
+         * @param tiles The numbers of the tiles that changed, or null if
+         *        every tile may have.
+         * @param count The number of tiles listed.
          */
-        public void preparePaint()
+        public void showFrame(BufferedImage image, int[] tiles, int count)
         {
-            if(! size.equals(getSize())) {  // if the size has changed...
-                size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
-                g = fieldImage.getGraphics();
-
-                xScale = size.width / gridWidth;
-                if(xScale < 1) {
-                    xScale = GRID_VIEW_SCALING_FACTOR;
-                }
-                yScale = size.height / gridHeight;
-                if(yScale < 1) {
-                    yScale = GRID_VIEW_SCALING_FACTOR;
-                }
+            fieldImage = image;
+            // Painting many tiles one at a time costs more than painting
+            // the whole field once.
+            if(tiles == null || count > tiles.length / 2) {
+                repaint();
+                return;
+            }
+            // Tiles repainted later would be merged into one rectangle
+            // holding them all, so each is painted now, on its own.
+            int size = TILE_SIZE * scale();
+            for(int i = 0; i < count; i++) {
+                int tile = tiles[i];
+                paintImmediately(tile % tilesAcross * size, tile / tilesAcross * size, size, size);
             }
         }
         
         /**
-         * Paint on grid location on this field in a given color.
+         * @return The largest whole number by which the image can be scaled
+         *         to fit, so that every location is the same size.
          */
-        public void drawMark(int x, int y, Color color)
+        private int scale()
         {
-            g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale-1, yScale-1);
-        }
-
-        /**
-         * Write on grid location on this field a given number.
-         */
-        public void drawNum(int num, int x, int y)
-        {
-            g.setColor(Color.darkGray);
-        	g.drawString(Integer.toString(num), (x) * xScale, (y+1) * yScale);
+            return Math.max(1, Math.min(getWidth() / gridWidth, getHeight() / gridHeight));
         }
         
         /**
-         * The field view component needs to be redisplayed. Copy the
-         * internal image to screen.
+         * Copy the image to the screen, scaled. Only the locations in the
+         * part of the screen being painted are drawn.
          */
-        /*
-        public void paintComponent(Graphics g)
+        @Override
+        public void paint(Graphics g)
         {
             if(fieldImage != null) {
-                g.drawImage(fieldImage, 0, 0, null);
+                int scale = scale();
+                int left = 0, top = 0, right = gridWidth, bottom = gridHeight;
+                Rectangle clip = g.getClipBounds();
+                if(clip != null) {
+                    left = Math.max(0, clip.x / scale);
+                    top = Math.max(0, clip.y / scale);
+                    right = Math.min(gridWidth, (clip.x + clip.width + scale - 1) / scale);
+                    bottom = Math.min(gridHeight, (clip.y + clip.height + scale - 1) / scale);
+                }
+                if(left < right && top < bottom) {
+                    g.drawImage(fieldImage, left * scale, top * scale, right * scale, bottom * scale,
+                                left, top, right, bottom, null);
+                }
+                // Clear any margin left where the panel is larger than the
+                // scaled field, which would otherwise show what was drawn
+                // there before.
+                g.setColor(getBackground());
+                g.fillRect(gridWidth * scale, 0, getWidth() - gridWidth * scale, getHeight());
+                g.fillRect(0, gridHeight * scale, gridWidth * scale, getHeight() - gridHeight * scale);
             }
         }
-        */
-        
-        @Override
-        public void paint(Graphics g)
+    }
+
+    /**
+     * The field as of one step, at one pixel per location, together with
+     * the text shown with it.
+     */
+    private static class Frame
+    {
+        final BufferedImage image;
+        final int[] pixels;
+        // The number of the frame, counting from 1 in the order handed over.
+        int number;
+        int step;
+        String population;
+        // The tiles whose locations changed since the frame before, each
+        // listed once, or whether every tile may have.
+        final int[] changedTiles;
+        int changedCount;
+        boolean allChanged;
+        // The cells that changed since this frame was last drawn; only
+        // used by the simulation thread.
+        final DirtyCells stale;
+
+        Frame(int height, int width, int tiles)
         {
-            if(fieldImage != null) {
-                g.drawImage(fieldImage, 0, 0, null);
-            }       	
+            changedTiles = new int[tiles];
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            stale = new DirtyCells(height * width);
+            stale.watch();
         }
     }
 }
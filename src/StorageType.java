@@ -0,0 +1,12 @@
+/**
+ * The ways the cells of a field can be stored.
+ */
+enum StorageType
+{
+    // Flat arrays covering the whole field; the fastest.
+    FLAT,
+    // Chunks allocated when first written, for large, mostly empty fields.
+    CHUNKED,
+    // Buffers outside the heap, optionally in a memory-mapped file.
+    OFF_HEAP
+}
@@ -0,0 +1,70 @@
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Three buffers passed between one thread that fills them and one that
+ * reads them, without either ever waiting for the other. The writer
+ * fills the back buffer and publishes it; the reader takes the latest
+ * published buffer, if there is a new one. Buffers published faster than
+ * the reader takes them are overwritten, so the reader skips them.
+ *
+ * @param <T> The type of the buffers.
+ */
+final class TripleBuffer<T>
+{
+    // Set in the shared index when the buffer there has not been taken.
+    private static final int FRESH = 4;
+
+    private final Object[] buffers;
+    // The buffer being filled, owned by the writer.
+    private int back;
+    // The buffer being read, owned by the reader.
+    private int front;
+    // The buffer last published, handed over between the two.
+    private final AtomicInteger middle;
+
+    /**
+     * @param first The buffer the writer fills first.
+     * @param second The buffer the reader holds first; it is not
+     *        returned by takeLatest until it has been published.
+     * @param third The third buffer.
+     */
+    TripleBuffer(T first, T second, T third)
+    {
+        buffers = new Object[] {first, second, third};
+        back = 0;
+        front = 1;
+        middle = new AtomicInteger(2);
+    }
+
+    /**
+     * @return The buffer for the writer to fill.
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack()
+    {
+        return (T) buffers[back];
+    }
+
+    /**
+     * Hand the filled back buffer to the reader, and take another to fill.
+     */
+    public void publish()
+    {
+        back = middle.getAndSet(back | FRESH) & ~FRESH;
+    }
+
+    /**
+     * @return The buffer most recently published, or null if nothing has
+     *         been published since the reader last took one. The buffer
+     *         is the reader's until it next calls this.
+     */
+    @SuppressWarnings("unchecked")
+    public T takeLatest()
+    {
+        if((middle.get() & FRESH) == 0) {
+            return null;
+        }
+        front = middle.getAndSet(front) & ~FRESH;
+        return (T) buffers[front];
+    }
+}
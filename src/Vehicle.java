@@ -1,14 +1,14 @@
-import java.util.ArrayList;
-import java.util.concurrent.ThreadLocalRandom;
-
 /**
  * Models a Rover Vehicle, which roams the landscape on Mars. Its objective is to collect Rock samples
  * and bring them back to the Mothership. 
  * 
- * Its primary method is act(), which calls either its simple, collaborative or optimised behaviour depending
- * on which one the user wants to use (the other method calls should be commented out). 
+ * A vehicle plans according to either its simple, collaborative or optimised behaviour, or a
+ * BehaviourStrategy registered in Behaviours, depending on which one is chosen in the
+ * simulation's configuration, and then carries out the plan.
+ * The vehicles of a simulation are stepped by its Fleet, which keeps their state in arrays;
+ * a Vehicle is only a handle on one of them, made once, e.g. to be placed in the field.
  * 
- * Descriptions of each behaviour in the act methods' subsumption hierarchies:
+ * Descriptions of each behaviour in the built-in strategies' subsumption hierarchies:
  * 
  * (1) if carrying a sample and at the base then drop sample 
  * (2) if carrying a sample and not at the base then travel up gradient 
@@ -19,250 +19,66 @@ import java.util.concurrent.ThreadLocalRandom;
  * (7) if true then move with intent (to the first found available location)
  * (8) if sense crumbs then pick up 1 and travel to its location 
  * 
+ * In the optimised behaviour, (5) defaults to (7) if moving up a gradient isn't possible, i.e.
+ * none of the adjacent locations have a stronger signal strength, and in the others (2) and (5)
+ * default to (4). Without this, the Vehicles can get caught in a loop and never leave their
+ * location -- meaning the simulation never ends. The optimised (5) also differs from the original
+ * in that a crumb is dropped regardless of whether or not the vehicle travels up the gradient.
+ * 
  * @author lawtonbs
  *
  */
 class Vehicle extends Entity {
-	public boolean carryingSample;
-	
-	public Vehicle(Location l) {
-		super(l);	
-		this.carryingSample = false;
-	}
-
-	public void act(Field f, Mothership m, ArrayList<Rock> rocksCollected)
-	{
-		//actCollaborative(f,m,rocksCollected);
-		//actSimple(f,m,rocksCollected);
-		actOptimised(f,m,rocksCollected);
-	}
-	
-	/**
-	 * Act according to the optimised subsumption hierarchy below.
-	 * 
-	 * (1) ≺ (5) ≺ (3) ≺ (8) ≺ (7)
-	 * 
-	 * Details on the individual behaviours can be found in the class-level comments. 
-	 * 
-	 * N.B. behaviour (5) defaults to behaviour (7) if moving up a gradient isn't possible, i.e.
-	 * none of the adjacent locations have a stronger signal strength. Without this, the Vehicles can get
-	 * caught in a loop and never leave their location -- meaning the simulation never ends. This optimisation also
-	 * differs from the original in that a crumb is dropped regardless of whether or not the vehicle travels up the gradient.
-	 * 
-	 * @param f Field the vehicle is operating in 
-	 * @param m Vehicle's Mothership 
-	 * @param rocksCollected Rocks collected and returned to Mothership 
-	 */
-	public void actOptimised(Field f, Mothership m, ArrayList<Rock> rocksCollected) {
-		boolean atBase = f.isNeighbourTo(location, Mothership.class);		
-		Location adjacentRockLocation = f.getNeighbour(location, Rock.class);
-		Location adjacentCrumb = senseCrumbs(f);
-		
-		if (carryingSample && atBase) {				// (1)					
-			m.incrementRockCount();
-			carryingSample = false;
-		} else if (carryingSample && !atBase) {		// (5)*
-			f.dropCrumbs(location, 2);
-			if (!moveUpGradient(f)) {
-				moveToFirstAvailable(f);
-			}
-		} else if (adjacentRockLocation != null) {	// (3)
-			Rock rock = (Rock) f.getObjectAt(adjacentRockLocation);
-			rocksCollected.add(rock);
-			f.clearLocation(adjacentRockLocation);
-			carryingSample = true;
-		} else if (adjacentCrumb != null) {			// (8)
-			f.pickUpACrumb(adjacentCrumb);
-			if (!move(f, adjacentCrumb)) {
-				moveToFirstAvailable(f);
-			}
-		} else {									// (7)
-			moveToFirstAvailable(f);
-		}
-	}
-	
-	/**
-	 * Act according to the collaborative subsumption hierarchy below.
-	 * 
-	 * (1) ≺ (5) ≺ (3) ≺ (6) ≺ (4)
-	 * 
-	 * Details on the individual behaviours can be found in the class-level comments. 
-	 * 
-	 * N.B. behaviour (5) defaults to behaviour (4) if moving up a gradient isn't possible, i.e.
-	 * none of the adjacent locations have a stronger signal strength. Without this, the Vehicles can get
-	 * caught in a loop and never leave their location -- meaning the simulation never ends. 
-	 * 
-	 * @param f Field the vehicle is operating in 
-	 * @param m Vehicle's Mothership 
-	 * @param rocksCollected Rocks collected and returned to Mothership 
-	 */
-	public void actCollaborative(Field f, Mothership m, ArrayList<Rock> rocksCollected) {
-		boolean atBase = f.isNeighbourTo(location, Mothership.class);		
-		Location adjacentRockLocation = f.getNeighbour(location, Rock.class);
-		Location adjacentCrumb = senseCrumbs(f);
-		
-		if (carryingSample && atBase) {				// (1)				
-			m.incrementRockCount();
-			carryingSample = false;
-		} else if (carryingSample && !atBase) {		// (5)
-			Location previous = location;
-			if (moveUpGradient(f)) {
-				f.dropCrumbs(previous, 2);
-			} else {
-				moveRandomly(f);
-			}
-		} else if (adjacentRockLocation != null) {	// (3)
-			Rock rock = (Rock) f.getObjectAt(adjacentRockLocation);
-			rocksCollected.add(rock);
-			f.clearLocation(adjacentRockLocation);
-			carryingSample = true;
-		} else if (adjacentCrumb != null) {			// (6)
-			f.pickUpACrumb(adjacentCrumb);
-			moveDownGradient(f);
-		} else {									// (4)
-			moveRandomly(f);
-		}
-	}
-	
-	/**
-	 * Act according to the simple, non-collaborative subsumption hierarchy below:
-	 * 
-	 * (1) ≺ (2) ≺ (3) ≺ (4)
-	 * 
-	 * Details on the individual behaviours can be found in the class-level comments. 
-	 * 
-	 * 
-	 * N.B. behaviour (2) defaults to behaviour (4) if moving up a gradient isn't possible, i.e.
-	 * none of the adjacent locations have a stronger signal strength. Without this, the Vehicles can get
-	 * caught in a loop and never leave their location -- meaning the simulation never ends. 
-	 * 
-	 * @param f Field the Vehicle is operating in 
-	 * @param m Vehicle's Mothership 
-	 * @param rocksCollected Rocks collected and returned to the Mothership 
-	 */
-	public void actSimple(Field f, Mothership m, ArrayList<Rock> rocksCollected) {
-		boolean atBase = f.isNeighbourTo(location, Mothership.class);		
-		Location adjacentRockLocation = f.getNeighbour(location, Rock.class);
-		
-		if (carryingSample && atBase) {				// (1)
-			m.incrementRockCount();
-			carryingSample = false;
-		} else if (carryingSample && !atBase) {		// (2)
-			if (!moveUpGradient(f)) {
-				moveRandomly(f);
-			}
-		} else if (adjacentRockLocation != null) {	// (3)
-			Rock rock = (Rock) f.getObjectAt(adjacentRockLocation);
-			rocksCollected.add(rock);
-			f.clearLocation(adjacentRockLocation);
-			carryingSample = true;
-		} else {									// (4)
-			moveRandomly(f);
-		}
-	}
+	// The fleet holding the vehicle's state, and its number there.
+	private final Fleet fleet;
+	private final int id;
 	
 	/**
-	 * 
-	 * Moves the vehicle to the specified location, if it's free. 
-	 * 
-	 * @param f Field the vehicle is operating in 
-	 * @param destination Vehicle's desired position 
-	 * 
-	 * @return Whether or not the Vehicle was moved to the destination 
+	 * @param fleet The fleet holding the vehicle's state 
+	 * @param id The vehicle's number in the fleet 
 	 */
-	private boolean move(Field f, Location destination) {
-		if (f.getObjectAt(destination) == null) {
-			f.clearLocation(location);
-			f.place(this, destination);
-			setLocation(destination);
-			
-			return true;
-		} else {
-			return false;
-		}
+	Vehicle(Fleet fleet, int id) {
+		super(null);
+		this.fleet = fleet;
+		this.id = id;
 	}
 	
 	/**
-	 * Moves the vehicle up the gradient and returns true, if there's an adjacent
-	 * space with a signal strength greater than the vehicle's current location. 
-	 * If there are no adjacent spaces with a higher signal strength, the vehicle 
-	 * won't move and the method will return false 
-	 * 
-	 * @param f Field the vehicle is operating in 
-	 * @return Whether or not the vehicle could move up the gradient 
+	 * @return The vehicle's number, unique within the simulation 
 	 */
-	private boolean moveUpGradient(Field f) {
-		ArrayList<Location> adjacentLocations = f.getAllfreeAdjacentLocations(location);
-		for (Location adjacent : adjacentLocations) {
-			if (f.getSignalStrength(adjacent) > f.getSignalStrength(location)) {
-				return move(f, adjacent);
-			}
-		}
-		return false;
+	public int getId() {
+		return id;
 	}
 	
 	/**
-	 * Moves the vehicle down the gradient and returns true, if there's an adjacent
-	 * space with a signal strength less than the vehicle's current location. 
-	 * If there are no adjacent spaces with a lower signal strength, the vehicle 
-	 * won't move and the method will return false 
-	 * 
-	 * @param f Field the vehicle is operating in 
-	 * @return Whether or not the vehicle could move down the gradient 
+	 * @return A new Location of the vehicle's cell 
 	 */
-	private boolean moveDownGradient(Field f) {
-		ArrayList<Location> adjacentLocations = f.getAllfreeAdjacentLocations(location);
-		for (Location adjacent : adjacentLocations) {
-			if (f.getSignalStrength(adjacent) < f.getSignalStrength(location)) {
-				return move(f, adjacent);
-			}
-		}
-		return false; 
+	@Override
+	public Location getLocation() {
+		int cell = fleet.getCell(id);
+		return new Location(cell / fleet.getWidth(), cell % fleet.getWidth());
 	}
 	
 	/**
-	 * Moves the vehicle to a randomly selected adjacent space, if one is free
-	 * 
-	 * @param f Field the vehicle is operating in 
+	 * Record that the vehicle is elsewhere; the field is not changed. 
+	 * @param location The vehicle's new location 
 	 */
-	private void moveRandomly(Field f) {
-		ArrayList<Location> adjacentLocations = f.getAllfreeAdjacentLocations(location);
-		int randomNum = ThreadLocalRandom.current().nextInt(0, adjacentLocations.size());
-		if (adjacentLocations.size() > 0) {
-			move(f, adjacentLocations.get(randomNum));
-		}
+	@Override
+	public void setLocation(Location location) {
+		fleet.setCell(id, location.getRow() * fleet.getWidth() + location.getCol());
 	}
 	
 	/**
-	 * Moves the vehicle to the first found adjacent location, if one is free 
-	 * 
-	 * @param f Field the vehicle is operating in 
+	 * @return Whether the vehicle carries a rock sample 
 	 */
-	private void moveToFirstAvailable(Field f) {
-		Location next = f.freeAdjacentLocation(location);
-		move(f, next);
+	public boolean isCarryingSample() {
+		return fleet.isCarrying(id);
 	}
 	
 	/**
-	 * Senses crumbs in locations adjacent the Vehicle. If some are found, returns the
-	 * Location containing the highest number of crumbs. Otherwise, null.
-	 * 
-	 * @param f Field the vehicle is operating in  
-	 * @param adjacentLocations locations adjacent to the vehicle's position 
-	 * @return Location containing (the most) crumbs if somewhere found adjacent to the vehicle, or null
-	 * if none were found 
+	 * @param carryingSample Whether the vehicle carries a rock sample 
 	 */
-	private Location senseCrumbs(Field f) {
-		ArrayList<Location> adjacentLocations = f.getAllfreeAdjacentLocations(location);
-		int highestCrumbCount = 0;
-		Location adjacentCrumbLocation = null;
-		
-		for (Location adjacent : adjacentLocations) {
-			if (f.getCrumbQuantityAt(adjacent) > highestCrumbCount) {
-				adjacentCrumbLocation = adjacent;
-				highestCrumbCount = f.getCrumbQuantityAt(location);
-			}
-		}
-		return adjacentCrumbLocation;
+	public void setCarryingSample(boolean carryingSample) {
+		fleet.setCarrying(id, carryingSample);
 	}
 }
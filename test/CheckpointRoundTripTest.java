@@ -0,0 +1,88 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A simulation written to a snapshot file at one step, read back and run
+ * on ends in the same state as the same simulation run without stopping.
+ */
+class CheckpointRoundTripTest
+{
+    // The step the snapshot is taken at, and the step both runs end at.
+    private static final int SNAPSHOT_STEP = 700;
+    private static final int FINAL_STEP = 2000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoredRunEndsLikeAnUninterruptedOne() throws IOException
+    {
+        for(Behaviour b : Behaviour.values()) {
+            assertRoundTrip(new SimulationConfig.Builder().width(100).depth(100).seed(133)
+                    .vehicleProbability(0.006).obstacleProbability(0.003).evaporationPeriod(50)
+                    .behaviour(b).build());
+        }
+    }
+
+    @Test
+    void everyStoreRoundTrips() throws IOException
+    {
+        for(StorageType storage : StorageType.values()) {
+            assertRoundTrip(new SimulationConfig.Builder().width(100).depth(100).seed(133)
+                    .vehicleProbability(0.006).obstacleProbability(0.003).evaporationPeriod(50)
+                    .storage(storage).build());
+        }
+    }
+
+    /**
+     * Run a configuration to FINAL_STEP directly, and again with a snapshot
+     * at SNAPSHOT_STEP written, read and run on, and check both end alike.
+     */
+    private void assertRoundTrip(SimulationConfig config) throws IOException
+    {
+        Simulator direct = new Simulator(config, null);
+        direct.simulate(FINAL_STEP);
+
+        Simulator first = new Simulator(config, null);
+        first.simulate(SNAPSHOT_STEP);
+        assertEquals(SNAPSHOT_STEP, first.getStep(), "The run stopped before the snapshot");
+        Path file = dir.resolve(config.getBehaviour() + "-" + config.getStorage() + ".ckpt");
+        first.checkpoint().write(file);
+
+        Simulator restored = new Simulator(Checkpoint.read(file), null);
+        assertEquals(SNAPSHOT_STEP, restored.getStep());
+        assertEquals(state(first), state(restored), "The snapshot changed the state");
+        restored.simulate(FINAL_STEP - SNAPSHOT_STEP);
+
+        String label = config.getBehaviour() + " with " + config.getStorage() + " storage";
+        assertEquals(state(direct), state(restored), label);
+    }
+
+    /**
+     * @return The state of a simulation: its step, the samples returned,
+     *         every vehicle and every cell with its kind and crumbs.
+     */
+    static String state(Simulator s)
+    {
+        Checkpoint c = s.checkpoint();
+        StringBuilder sb = new StringBuilder();
+        sb.append("step ").append(c.getStep()).append(", completed ").append(c.getCompletionStep())
+          .append(", mothership ").append(c.getMothershipCell())
+          .append(", samples ").append(c.getRocksReturned()).append('\n');
+        for(int i = 0; i < c.getVehicleCount(); i++) {
+            sb.append(c.getVehicleCell(i)).append(c.isCarrying(i) ? "* " : " ");
+        }
+        sb.append('\n');
+        Field f = s.getField();
+        for(int index = 0; index < f.getDepth() * f.getWidth(); index++) {
+            sb.append(f.getCellType(index)).append(':').append(f.getCrumbQuantity(index))
+              .append(index % f.getWidth() == f.getWidth() - 1 ? '\n' : ' ');
+        }
+        return sb.toString();
+    }
+}
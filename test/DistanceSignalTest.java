@@ -0,0 +1,145 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The distance signal measures the shortest way around the obstacles,
+ * and stays right as obstacles come and go.
+ */
+class DistanceSignalTest
+{
+    @Test
+    void signalGoesAroundAWall()
+    {
+        // A wall down column 4 leaves only the way round the torus from
+        // the mothership in column 2 to column 6: eight moves, not four.
+        Field field = field(12, 12);
+        for(int row = 0; row < 12; row++) {
+            field.place(new Obstacle(new Location(row, 4)), row, 4);
+        }
+        land(field, 6, 2);
+        assertEquals(144 - 8, field.getSignalStrength(6, 6));
+
+        // A gap in the wall opens the short way, and closing it shuts it.
+        field.place(null, 6 * 12 + 4);
+        assertEquals(144 - 4, field.getSignalStrength(6, 6));
+        field.place(new Obstacle(new Location(6, 4)), 6, 4);
+        assertEquals(144 - 8, field.getSignalStrength(6, 6));
+    }
+
+    @Test
+    void walledInCellHasNoSignal()
+    {
+        Field field = field(9, 9);
+        for(int dr = -1; dr <= 1; dr++) {
+            for(int dc = -1; dc <= 1; dc++) {
+                if(dr != 0 || dc != 0) {
+                    field.place(new Obstacle(new Location(2 + dr, 2 + dc)), 2 + dr, 2 + dc);
+                }
+            }
+        }
+        land(field, 6, 6);
+        assertEquals(0, field.getSignalStrength(2, 2));
+        assertEquals(81 - 2, field.getSignalStrength(4, 4));
+    }
+
+    @Test
+    void signalMatchesASimpleSearch()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            // Large enough for the frontiers to be expanded in parallel.
+            int depth = 150;
+            int width = 200;
+            Field field = field(depth, width);
+            field.getSignal().setPool(pool);
+            SplittableRandom random = new SplittableRandom(133);
+            for(int index = 0; index < depth * width; index++) {
+                if(random.nextDouble() < 0.3) {
+                    field.place(new Obstacle(new Location(index / width, index % width)), index);
+                }
+            }
+            field.place(null, 70 * width + 90);
+            land(field, 70, 90);
+            assertMatches(field);
+
+            // Obstacles added and removed update the signal as a new
+            // search would find it.
+            for(int i = 0; i < 200; i++) {
+                int index = random.nextInt(depth * width);
+                if(field.getCellType(index) == Field.OBSTACLE) {
+                    field.place(null, index);
+                }
+                else if(field.getCellType(index) == Field.EMPTY) {
+                    field.place(new Obstacle(new Location(index / width, index % width)), index);
+                }
+                assertMatches(field);
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * @return An empty field with a distance signal.
+     */
+    private static Field field(int depth, int width)
+    {
+        Field field = new Field(depth, width, new SplittableRandom(1));
+        field.setSignal(new DistanceSignal(depth, width));
+        return field;
+    }
+
+    /**
+     * Land a mothership and emit its signal.
+     */
+    private static void land(Field field, int row, int col)
+    {
+        Mothership m = new Mothership(new Location(row, col));
+        field.place(m, row, col);
+        m.emitSignal(field);
+    }
+
+    /**
+     * Check the signal of every cell against a breadth-first search from
+     * the mothership through the cells that are not obstacles.
+     */
+    private static void assertMatches(Field field)
+    {
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        int[] distance = new int[depth * width];
+        Arrays.fill(distance, -1);
+        ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+        for(int index = 0; index < depth * width; index++) {
+            if(field.getCellType(index) == Field.MOTHERSHIP) {
+                distance[index] = 0;
+                queue.add(index);
+            }
+        }
+        while(!queue.isEmpty()) {
+            int cell = queue.poll();
+            for(int dr = -1; dr <= 1; dr++) {
+                for(int dc = -1; dc <= 1; dc++) {
+                    int row = Math.floorMod(cell / width + dr, depth);
+                    int col = Math.floorMod(cell % width + dc, width);
+                    int next = row * width + col;
+                    if(distance[next] < 0 && field.getCellType(next) != Field.OBSTACLE) {
+                        distance[next] = distance[cell] + 1;
+                        queue.add(next);
+                    }
+                }
+            }
+        }
+        for(int index = 0; index < depth * width; index++) {
+            int expected = distance[index] < 0 ? 0 : depth * width - distance[index];
+            assertEquals(expected, field.getSignalStrength(index), "cell " + index);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * A seed gives the same run whether the vehicles are stepped on the
+ * simulation's own thread or planned in parallel on a pool of any size.
+ */
+class EngineAgreementTest
+{
+    @Test
+    void defaultsCompleteAtTheSameStepWithAndWithoutAPool()
+    {
+        SimulationConfig config = SimulationConfig.defaults();
+        assertTrue(run(config, 0).startsWith("completed at step"), "The defaults did not complete");
+        assertAgree(config);
+    }
+
+    @Test
+    void everyBehaviourRunsTheSameWithAndWithoutAPool()
+    {
+        for(Behaviour b : Behaviour.values()) {
+            assertAgree(new SimulationConfig.Builder().width(100).depth(100).seed(133)
+                    .vehicleProbability(0.006).obstacleProbability(0.003).behaviour(b).build());
+        }
+    }
+
+    /**
+     * Run a configuration without a pool and on pools of 1 and 4 threads,
+     * and check that each run ends the same way.
+     */
+    private static void assertAgree(SimulationConfig config)
+    {
+        String serial = run(config, 0);
+        for(int threads : new int[] {1, 4}) {
+            assertEquals(serial, run(config, threads),
+                         config.getBehaviour() + " on " + threads + " threads");
+        }
+    }
+
+    /**
+     * Run a configuration until it completes, stops being viable or
+     * reaches its length.
+     * @param threads The size of the pool, or 0 for none.
+     * @return How the run ended: the step at which it completed, or else
+     *         the step it stopped at and the samples returned by then.
+     */
+    private static String run(SimulationConfig config, int threads)
+    {
+        Simulator s = new Simulator(config, null);
+        ForkJoinPool pool = null;
+        if(threads > 0) {
+            pool = new ForkJoinPool(threads);
+            s.setPool(pool);
+        }
+        try {
+            s.simulateUntilComplete(config.getLength());
+            if(s.isComplete()) {
+                return "completed at step " + s.getCompletionStep();
+            }
+            return "stopped at step " + s.getStep() + " with " + s.getMothership().getRockCount() + " samples";
+        }
+        finally {
+            if(pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+}
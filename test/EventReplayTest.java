@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A snapshot and the event log recorded after it rebuild the same state
+ * as simulating on from the snapshot.
+ */
+class EventReplayTest
+{
+    // The step the snapshot and the log start at, and the step they reach.
+    private static final int SNAPSHOT_STEP = 500;
+    private static final int FINAL_STEP = 2500;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replayReachesTheStateOfTheSimulation() throws IOException
+    {
+        for(Behaviour b : Behaviour.values()) {
+            assertReplays(new SimulationConfig.Builder().width(100).depth(100).seed(133)
+                    .vehicleProbability(0.006).obstacleProbability(0.003).evaporationPeriod(50)
+                    .behaviour(b).build());
+        }
+    }
+
+    @Test
+    void replayStopsAtTheStepAskedFor() throws IOException
+    {
+        SimulationConfig config = SimulationConfig.defaults();
+        Path snapshot = dir.resolve("defaults.ckpt");
+        Path log = dir.resolve("defaults.events");
+        Simulator recorded = record(config, snapshot, log);
+
+        Simulator halfway = new Simulator(config, null);
+        halfway.simulate((SNAPSHOT_STEP + FINAL_STEP) / 2);
+        Simulator replayed = new Simulator(Checkpoint.read(snapshot), null);
+        try (EventLog.Reader reader = new EventLog.Reader(log)) {
+            replayed.replay(reader, (SNAPSHOT_STEP + FINAL_STEP) / 2);
+        }
+        assertEquals(CheckpointRoundTripTest.state(halfway), CheckpointRoundTripTest.state(replayed));
+
+        // The simulation carries on from the replayed step as usual.
+        replayed.simulate(recorded.getStep() - replayed.getStep());
+        assertEquals(CheckpointRoundTripTest.state(recorded), CheckpointRoundTripTest.state(replayed));
+    }
+
+    /**
+     * Record a configuration from SNAPSHOT_STEP to FINAL_STEP, then replay
+     * the record and check it reaches the state the simulation reached.
+     */
+    private void assertReplays(SimulationConfig config) throws IOException
+    {
+        Path snapshot = dir.resolve(config.getBehaviour() + ".ckpt");
+        Path log = dir.resolve(config.getBehaviour() + ".events");
+        Simulator recorded = record(config, snapshot, log);
+
+        Simulator replayed = new Simulator(Checkpoint.read(snapshot), null);
+        try (EventLog.Reader reader = new EventLog.Reader(log)) {
+            replayed.replay(reader, FINAL_STEP);
+        }
+        assertEquals(CheckpointRoundTripTest.state(recorded), CheckpointRoundTripTest.state(replayed),
+                     config.getBehaviour());
+    }
+
+    /**
+     * Run a configuration to SNAPSHOT_STEP, write a snapshot, then run on
+     * to FINAL_STEP recording the events.
+     * @return The simulation, at FINAL_STEP unless it stopped being viable.
+     */
+    private static Simulator record(SimulationConfig config, Path snapshot, Path log) throws IOException
+    {
+        Simulator s = new Simulator(config, null);
+        s.simulate(SNAPSHOT_STEP);
+        assertEquals(SNAPSHOT_STEP, s.getStep(), "The run stopped before the snapshot");
+        s.checkpoint().write(snapshot);
+        try (EventLog events = new EventLog(log, config.getDepth(), config.getWidth(), s.getStep())) {
+            s.setEventLog(events);
+            s.simulate(FINAL_STEP - SNAPSHOT_STEP);
+            s.setEventLog(null);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,103 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.SplittableRandom;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The way home is worked out again around a cell whose obstacle comes or
+ * goes, even when the signal itself does not change.
+ */
+class FlowFieldTest
+{
+    // Wide enough for the field to have several tiles each way.
+    private static final int SIZE = 150;
+
+    @Test
+    void obstacleOnTheWayIsAvoidedAndClearedAgain()
+    {
+        Field field = field();
+        land(field, 40, 40);
+        // (64, 64) is the corner of a tile, and its way home lies in the
+        // tile diagonally up and to the left.
+        int corner = 64 * SIZE + 64;
+        int diagonal = 63 * SIZE + 63;
+        assertEquals(diagonal, field.nextHop(corner));
+
+        field.place(new Obstacle(new Location(63, 63)), diagonal);
+        assertEquals(expectedHop(field, corner), field.nextHop(corner));
+        assertEquals(63 * SIZE + 64, field.nextHop(corner));
+
+        field.place(null, diagonal);
+        assertEquals(diagonal, field.nextHop(corner));
+    }
+
+    @Test
+    void everyCellMatchesItsNeighbours()
+    {
+        Field field = field();
+        land(field, 100, 30);
+        SplittableRandom random = new SplittableRandom(133);
+        for(int round = 0; round < 20; round++) {
+            // Ask about every cell so that every tile is filled in, then
+            // change some obstacles and check nothing stale is left.
+            for(int index = 0; index < SIZE * SIZE; index++) {
+                field.nextHop(index);
+            }
+            for(int i = 0; i < 50; i++) {
+                int index = random.nextInt(SIZE * SIZE);
+                if(field.getCellType(index) == Field.OBSTACLE) {
+                    field.place(null, index);
+                }
+                else if(field.getCellType(index) == Field.EMPTY) {
+                    field.place(new Obstacle(new Location(index / SIZE, index % SIZE)), index);
+                }
+            }
+            for(int index = 0; index < SIZE * SIZE; index++) {
+                assertEquals(expectedHop(field, index), field.nextHop(index), "cell " + index);
+            }
+        }
+    }
+
+    /**
+     * @return An empty field with the separable signal, which obstacles
+     *         do not change.
+     */
+    private static Field field()
+    {
+        return new Field(SIZE, SIZE, new SplittableRandom(1));
+    }
+
+    /**
+     * Land a mothership and emit its signal.
+     */
+    private static void land(Field field, int row, int col)
+    {
+        Mothership m = new Mothership(new Location(row, col));
+        field.place(m, row, col);
+        m.emitSignal(field);
+    }
+
+    /**
+     * @return The neighbour of a cell, not an obstacle, with the strongest
+     *         signal if it is stronger than in the cell, the first found
+     *         in row order winning a tie; otherwise -1.
+     */
+    private static int expectedHop(Field field, int index)
+    {
+        int best = field.getSignalStrength(index);
+        int hop = -1;
+        for(int dr = -1; dr <= 1; dr++) {
+            for(int dc = -1; dc <= 1; dc++) {
+                int row = Math.floorMod(index / SIZE + dr, SIZE);
+                int col = Math.floorMod(index % SIZE + dc, SIZE);
+                int cell = row * SIZE + col;
+                if(field.getCellType(cell) != Field.OBSTACLE && field.getSignalStrength(cell) > best) {
+                    best = field.getSignalStrength(cell);
+                    hop = cell;
+                }
+            }
+        }
+        return hop;
+    }
+}
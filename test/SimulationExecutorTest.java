@@ -0,0 +1,215 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * The executor runs one task at a time, and a run can be paused, resumed
+ * and cancelled between steps.
+ */
+class SimulationExecutorTest
+{
+    // How long to wait for the executor's thread before giving up.
+    private static final long TIMEOUT_SECONDS = 10;
+    // Far more steps than any of the runs here get through.
+    private static final int STEPS = 1000000;
+
+    private SimulationExecutor executor;
+
+    @BeforeEach
+    void setUp()
+    {
+        executor = new SimulationExecutor();
+    }
+
+    @AfterEach
+    void tearDown()
+    {
+        executor.shutdown();
+    }
+
+    @Test
+    void secondTaskIsRefusedWhileTheFirstIsGoing() throws InterruptedException
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        Finished finished = new Finished();
+        assertTrue(executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                awaitQuietly(release);
+            }
+        }, finished));
+        assertTrue(executor.isBusy());
+        assertFalse(executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, null));
+
+        release.countDown();
+        finished.await();
+        assertNull(finished.failure.get());
+        assertFalse(executor.isBusy());
+        Finished next = new Finished();
+        assertTrue(executor.submit(new Runnable() {
+            @Override
+            public void run() {
+            }
+        }, next));
+        next.await();
+    }
+
+    @Test
+    void failureIsPassedToTheListener() throws InterruptedException
+    {
+        final IllegalStateException thrown = new IllegalStateException("broken");
+        Finished finished = new Finished();
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                throw thrown;
+            }
+        }, finished);
+        finished.await();
+        assertSame(thrown, finished.failure.get());
+        assertFalse(executor.isBusy());
+    }
+
+    @Test
+    void pausedRunWaitsUntilResumedAndStopsWhenCancelled() throws InterruptedException
+    {
+        Simulator s = new Simulator(SimulationConfig.defaults(), null);
+        executor.setStepsPerSecond(500);
+        Finished finished = new Finished();
+        assertTrue(executor.run(s, STEPS, finished));
+        awaitStepAbove(s, 0);
+
+        executor.pause();
+        assertTrue(executor.isPaused());
+        Thread.sleep(100);
+        int paused = stepOf(s);
+        Thread.sleep(200);
+        assertEquals(paused, stepOf(s), "The run went on while paused");
+        assertTrue(executor.isBusy());
+
+        executor.resume();
+        assertFalse(executor.isPaused());
+        awaitStepAbove(s, paused);
+
+        executor.cancel();
+        finished.await();
+        assertNull(finished.failure.get());
+        assertFalse(executor.isBusy());
+        assertTrue(stepOf(s) < STEPS);
+    }
+
+    @Test
+    void cancelEndsAPausedRun() throws InterruptedException
+    {
+        Simulator s = new Simulator(SimulationConfig.defaults(), null);
+        executor.setStepsPerSecond(500);
+        Finished finished = new Finished();
+        executor.run(s, STEPS, finished);
+        awaitStepAbove(s, 0);
+        executor.pause();
+        executor.cancel();
+        finished.await();
+        assertFalse(executor.isBusy());
+        assertFalse(executor.isPaused());
+    }
+
+    @Test
+    void pauseWithNothingGoingIsIgnored()
+    {
+        executor.pause();
+        assertFalse(executor.isPaused());
+    }
+
+    @Test
+    void negativeRateIsRefused()
+    {
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                executor.setStepsPerSecond(-1);
+            }
+        });
+        assertThrows(IllegalArgumentException.class, new Executable() {
+            @Override
+            public void execute() {
+                executor.setStepsPerSecond(Double.NaN);
+            }
+        });
+    }
+
+    /**
+     * A listener that remembers how a task finished.
+     */
+    private static class Finished implements SimulationExecutor.Listener
+    {
+        private final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+        @Override
+        public void finished(RuntimeException failure)
+        {
+            this.failure.set(failure);
+            done.countDown();
+        }
+
+        /**
+         * Wait for the task to finish.
+         */
+        void await() throws InterruptedException
+        {
+            assertTrue(done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "The task did not finish");
+        }
+    }
+
+    /**
+     * @return The step of a simulation being run on another thread.
+     */
+    private static int stepOf(Simulator s)
+    {
+        // Taking a lock makes the loops below read the step afresh.
+        synchronized(s) {
+            return s.getStep();
+        }
+    }
+
+    /**
+     * Wait until a simulation being run goes past a step.
+     */
+    private static void awaitStepAbove(Simulator s, int step) throws InterruptedException
+    {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while(stepOf(s) <= step) {
+            assertTrue(System.nanoTime() < deadline, "The run did not get past step " + step);
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Wait for a latch, ignoring interruptions.
+     */
+    private static void awaitQuietly(CountDownLatch latch)
+    {
+        try {
+            latch.await();
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The reader of a triple buffer gets the latest buffer published, only
+ * once, and never one the writer is filling.
+ */
+class TripleBufferTest
+{
+    @Test
+    void readerTakesEachPublishedBufferOnce()
+    {
+        long[] first = new long[1];
+        long[] second = new long[1];
+        long[] third = new long[1];
+        TripleBuffer<long[]> buffer = new TripleBuffer<long[]>(first, second, third);
+        assertNull(buffer.takeLatest(), "Nothing has been published");
+        assertSame(first, buffer.getBack());
+
+        buffer.publish();
+        assertSame(third, buffer.getBack());
+        assertSame(first, buffer.takeLatest());
+        assertNull(buffer.takeLatest(), "The buffer was handed over twice");
+    }
+
+    @Test
+    void readerSkipsBuffersItWasTooSlowFor()
+    {
+        TripleBuffer<long[]> buffer = new TripleBuffer<long[]>(new long[1], new long[1], new long[1]);
+        buffer.getBack()[0] = 1;
+        buffer.publish();
+        buffer.getBack()[0] = 2;
+        buffer.publish();
+        assertEquals(2, buffer.takeLatest()[0]);
+        assertNull(buffer.takeLatest());
+    }
+
+    @Test
+    void writerNeverFillsTheBufferBeingRead()
+    {
+        TripleBuffer<long[]> buffer = new TripleBuffer<long[]>(new long[1], new long[1], new long[1]);
+        long[] reading = null;
+        // Every interleaving of up to three publishes between takes.
+        for(int i = 0; i < 64; i++) {
+            for(int publishes = 0; publishes < (i % 4); publishes++) {
+                buffer.publish();
+                assertNotSame(reading, buffer.getBack());
+            }
+            long[] taken = buffer.takeLatest();
+            if(taken != null) {
+                reading = taken;
+            }
+            assertNotSame(reading, buffer.getBack());
+        }
+    }
+
+    @Test
+    void concurrentReaderSeesWholeBuffersInOrder() throws InterruptedException
+    {
+        final int buffers = 1000000;
+        final TripleBuffer<long[]> buffer = new TripleBuffer<long[]>(new long[8], new long[8], new long[8]);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run()
+            {
+                for(long n = 1; n <= buffers; n++) {
+                    long[] back = buffer.getBack();
+                    for(int i = 0; i < back.length; i++) {
+                        back[i] = n;
+                    }
+                    buffer.publish();
+                }
+            }
+        });
+        writer.setUncaughtExceptionHandler(new Thread.UncaughtExceptionHandler() {
+            @Override
+            public void uncaughtException(Thread t, Throwable e)
+            {
+                failure.set(e);
+            }
+        });
+        writer.start();
+
+        long last = 0;
+        int taken = 0;
+        while(last < buffers) {
+            long[] front = buffer.takeLatest();
+            if(front == null) {
+                if(writer.isAlive()) {
+                    continue;
+                }
+                // Everything the writer did is seen once it has finished.
+                assertNull(failure.get());
+                front = buffer.takeLatest();
+                assertNotNull(front, "The last buffer was never handed over");
+            }
+            for(int i = 1; i < front.length; i++) {
+                assertEquals(front[0], front[i], "A buffer was read while being filled");
+            }
+            assertTrue(front[0] > last, "Buffer " + front[0] + " was taken after " + last);
+            last = front[0];
+            taken++;
+        }
+        writer.join();
+        assertNull(failure.get());
+        assertTrue(taken > 0);
+    }
+}